@@ -1,10 +1,14 @@
+import glob
+import os
+
 import matplotlib.pyplot as plt
 import pandas as pd
 import numpy as np
 import matplotlib.ticker as ticker
 
 # Constants
-DATA_FILE_PATH = 'output/data.txt'
+DATA_FILE_PATH = 'output/results.csv'
+SWEEP_SCENARIO = 'sweep'
 EXPECTED_ROW_COUNT = 6
 ERROR_MESSAGE = "You must run the main with 'generateGraphData = true'"
 FIGURE_SIZE = (10, 6)
@@ -13,6 +17,7 @@ GRID_ENABLED = True
 HITS_Y_LIMIT_MIN = 735000
 HITS_Y_LIMIT_MAX = 760000
 LEGEND_LOCATION = 'lower right'
+TIME_SERIES_PATTERN = 'output/timeseries_*.csv'
 
 def main():
     """Main function to execute the plotting process"""
@@ -21,12 +26,14 @@ def main():
 
     create_page_faults_graph(df)
     create_hits_graph(df)
+    create_time_series_graphs()
 
     display_graphs()
 
 def load_data():
-    """Loads data from the output file"""
-    return pd.read_csv(DATA_FILE_PATH, sep=r'\s+', header=0)
+    """Loads the page size / frames sweep from the results file"""
+    df = pd.read_csv(DATA_FILE_PATH)
+    return df[df['scenario'] == SWEEP_SCENARIO].reset_index(drop=True)
 
 def validate_data(df):
     """Validates that the data frame has the expected format"""
@@ -109,6 +116,32 @@ def configure_logarithmic_scale(ax, df):
     ax.set_yticks(logarithmic_scale)
     print(logarithmic_scale)
 
+def create_time_series_graphs():
+    """Creates the per-window faults and working set graphs, one line per scenario"""
+    paths = sorted(glob.glob(TIME_SERIES_PATTERN))
+    if not paths:
+        return
+
+    fig, (ax_faults, ax_working_set) = plt.subplots(2, 1, figsize=FIGURE_SIZE, sharex=True)
+    for path in paths:
+        series = pd.read_csv(path)
+        label = time_series_label(path)
+        ax_faults.plot(series['first_reference'], series['faults'], label=label)
+        ax_working_set.plot(series['first_reference'], series['working_set'], label=label)
+
+    ax_faults.set_ylabel('Faults per window')
+    ax_faults.set_title('Faults and Working Set over the Trace\n(by Page Size and Assigned Frames)')
+    ax_faults.legend()
+    ax_faults.grid(GRID_ENABLED)
+    ax_working_set.set_xlabel('Reference')
+    ax_working_set.set_ylabel('Distinct pages per window')
+    ax_working_set.grid(GRID_ENABLED)
+
+def time_series_label(path):
+    """Builds the legend label from a timeseries_<page size>_<frames>.csv file name"""
+    _, page_size, frames = os.path.splitext(os.path.basename(path))[0].split('_')
+    return f'{page_size} B, {frames} frames'
+
 def display_graphs():
     """Displays all generated graphs"""
     plt.show()
@@ -0,0 +1,338 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import image.Image;
+import image.ImageBufferPool;
+import image.SobelFilter;
+import memory.ReferenceTrace;
+import memory.SimulationOptions;
+import results.ResultSink;
+
+/**
+ * Processes every BMP of a directory through four stages: load, Sobel filter, trace
+ * generation and paging simulation. Stages run in their own threads and are connected by
+ * bounded queues, so different images are loaded, filtered, traced and simulated at the
+ * same time, and a slow stage holds back the ones before it instead of filling the heap.
+ *
+ * Usage: ImagePipeline [directory]
+ */
+public class ImagePipeline {
+    // Constants
+    private static final String INPUT_DIRECTORY = "images";
+    private static final String OUTPUT_DIRECTORY = "output/filtered";
+    private static final String IMAGE_EXTENSION = ".bmp";
+    private static final String OUTPUT_SUFFIX = "_sal.bmp";
+    private static final String RESULTS_CSV_PATH = "output/pipeline_results.csv";
+    private static final String RESULTS_JSON_PATH = "output/pipeline_results.jsonl";
+    private static final String SCENARIO = "pipeline";
+    private static final int PAGE_SIZE = 512;
+    private static final int FRAME_COUNT = 4;
+    private static final int READER_BATCH_RUNS = 1024;
+    private static final int QUEUE_CAPACITY = 4; // Images waiting between two stages
+    // Pixel matrices kept per image size: enough for the images released while the queues are full
+    private static final int POOL_BUFFERS_PER_SIZE = 2 * QUEUE_CAPACITY;
+    private static final long POOL_MAX_BYTES = 512L << 20;
+
+    // Threads per stage
+    private static final int LOAD_THREADS = 2;
+    private static final int FILTER_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private static final int TRACE_THREADS = 2;
+    private static final int SIMULATE_THREADS = 2; // Each simulation also runs an Inspector thread
+
+    // Marks the end of the images in a queue
+    private static final ImageJob END = new ImageJob(null);
+
+    private static final ResultSink RESULTS = new ResultSink();
+    // Buffers shared by the stages, so images of a size seen before allocate no pixels
+    private static final ImageBufferPool POOL = new ImageBufferPool(POOL_BUFFERS_PER_SIZE, POOL_MAX_BYTES);
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Paths.get(args.length > 0 ? args[0] : INPUT_DIRECTORY);
+        Files.createDirectories(Paths.get(OUTPUT_DIRECTORY));
+
+        BlockingQueue<ImageJob> pending = listImages(directory);
+        BlockingQueue<ImageJob> loaded = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<ImageJob> filtered = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<ImageJob> traced = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+        Stage[] stages = {
+                new Stage("load", LOAD_THREADS, pending, loaded, ImagePipeline::loadImage),
+                new Stage("filter", FILTER_THREADS, loaded, filtered, ImagePipeline::filterImage),
+                new Stage("trace", TRACE_THREADS, filtered, traced, ImagePipeline::traceImage),
+                new Stage("simulate", SIMULATE_THREADS, traced, null, ImagePipeline::simulateImage)
+        };
+
+        long startTime = System.nanoTime();
+        for (Stage stage : stages) {
+            stage.start();
+        }
+        for (Stage stage : stages) {
+            stage.join();
+        }
+        long elapsedNanos = System.nanoTime() - startTime;
+
+        writeResults();
+        displayStageThroughput(stages, elapsedNanos);
+    }
+
+    /**
+     * Queues a job for every BMP of the directory, in name order, followed by the end marker
+     */
+    private static BlockingQueue<ImageJob> listImages(Path directory) throws IOException {
+        BlockingQueue<ImageJob> jobs = new LinkedBlockingQueue<>();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().toLowerCase().endsWith(IMAGE_EXTENSION))
+                    .sorted()
+                    .forEach(file -> jobs.add(new ImageJob(file)));
+        }
+        jobs.add(END);
+        return jobs;
+    }
+
+    /**
+     * Reads the BMP. Image reports read errors itself, including a file truncated inside
+     * the pixel data, and then leaves its pixels null, so the image counts as failed.
+     */
+    private static boolean loadImage(ImageJob job) {
+        job.input = new Image(job.path.toString(), POOL);
+        return job.input.image != null;
+    }
+
+    /**
+     * Applies the Sobel filter and writes the result to the output directory
+     */
+    private static boolean filterImage(ImageJob job) {
+        Image output = new Image(job.input, POOL);
+        new SobelFilter(job.input, output, SobelFilter.sobelX(), SobelFilter.sobelY()).applySobel();
+
+        String name = job.getName();
+        String baseName = name.substring(0, name.length() - IMAGE_EXTENSION.length());
+        output.writeImage(Paths.get(OUTPUT_DIRECTORY, baseName + OUTPUT_SUFFIX).toString());
+        output.release();
+        return true;
+    }
+
+    /**
+     * Records the references of the Sobel kernel as a run-length trace, without a text file
+     */
+    private static boolean traceImage(ImageJob job) {
+        Option1 option1 = new Option1(PAGE_SIZE, job.input);
+        option1.setImagePool(POOL);
+        option1.calculateNumberOfPages();
+        job.references = option1.traceSobelKernelRuns();
+        job.pageCount = option1.getPageCount();
+        job.input.release(); // The pixels are no longer needed
+        job.input = null;
+        return true;
+    }
+
+    /**
+     * Simulates the trace; the result goes to the result sink under the name of the image
+     */
+    private static boolean simulateImage(ImageJob job) {
+        SimulationOptions options = new SimulationOptions()
+                .withTimeSeriesWindow(0)
+                .withBatchRuns(READER_BATCH_RUNS)
+                .withReportPrinted(false)
+                .withResults(RESULTS, SCENARIO, job.getName());
+
+        new Option2(FRAME_COUNT, PAGE_SIZE, job.pageCount, job.references, options).startAndWait();
+        job.references = null;
+        return true;
+    }
+
+    private static void writeResults() {
+        try {
+            RESULTS.writeCsv(Paths.get(RESULTS_CSV_PATH));
+            RESULTS.writeJsonLines(Paths.get(RESULTS_JSON_PATH));
+        } catch (IOException e) {
+            System.err.println("Error writing to file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Prints, for each stage, the images it processed, its throughput over the time it was
+     * active, the mean time per image and the time its threads waited for the next stage
+     */
+    private static void displayStageThroughput(Stage[] stages, long elapsedNanos) {
+        System.out.println("\n|-----------------------------------------------------------|");
+        System.out.printf("    Pipeline: %d images in %.2f s (page size %d, %d frames)%n",
+                RESULTS.getResults().size(), elapsedNanos / 1e9, PAGE_SIZE, FRAME_COUNT);
+        System.out.printf("    %-10s%9s%8s%8s%12s%12s%12s%n", "stage", "threads", "images", "failed", "images/s",
+                "ms/image", "blocked s");
+
+        for (Stage stage : stages) {
+            System.out.printf("    %-10s%9d%8d%8d%12.2f%12.1f%12.2f%n", stage.name, stage.threads,
+                    stage.processed.get(), stage.failed.get(), stage.getThroughput(), stage.getMillisPerImage(),
+                    stage.blockedNanos.get() / 1e9);
+        }
+        System.out.printf("    Buffer pool: %d reused, %d allocated, %d dropped, %.1f MB kept%n", POOL.getReused(),
+                POOL.getAllocated(), POOL.getDropped(), POOL.getRetainedBytes() / 1e6);
+        System.out.println("|-----------------------------------------------------------|");
+    }
+
+    /**
+     * Work done by a stage on one image
+     */
+    private interface Step {
+        /**
+         * @return Whether the image goes on to the next stage
+         */
+        boolean apply(ImageJob job);
+    }
+
+    /**
+     * State of one image as it moves through the stages
+     */
+    private static class ImageJob {
+        final Path path;
+        Image input;
+        ReferenceTrace references;
+        int pageCount;
+
+        ImageJob(Path path) {
+            this.path = path;
+        }
+
+        String getName() {
+            return path.getFileName().toString();
+        }
+    }
+
+    /**
+     * A step run by a fixed number of worker threads between an input and an output queue.
+     * The end marker is put back for the other workers of the stage, and the last worker to
+     * finish passes it on to the next stage.
+     */
+    private static class Stage {
+        final String name;
+        final int threads;
+        final BlockingQueue<ImageJob> input;
+        final BlockingQueue<ImageJob> output; // null for the last stage
+        final Step step;
+        final List<StageWorker> workers = new ArrayList<>();
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger processed = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicLong busyNanos = new AtomicLong();
+        final AtomicLong blockedNanos = new AtomicLong(); // Waiting for room in the output queue
+        final AtomicLong firstStart = new AtomicLong(Long.MAX_VALUE);
+        final AtomicLong lastEnd = new AtomicLong();
+
+        Stage(String name, int threads, BlockingQueue<ImageJob> input, BlockingQueue<ImageJob> output, Step step) {
+            this.name = name;
+            this.threads = threads;
+            this.input = input;
+            this.output = output;
+            this.step = step;
+        }
+
+        void start() {
+            running.set(threads);
+            for (int t = 0; t < threads; t++) {
+                StageWorker worker = new StageWorker(this);
+                workers.add(worker);
+                worker.start();
+            }
+        }
+
+        void join() throws InterruptedException {
+            for (StageWorker worker : workers) {
+                worker.join();
+            }
+        }
+
+        /**
+         * Returns the images processed per second between the first image taken and the last one finished
+         */
+        double getThroughput() {
+            long active = lastEnd.get() - firstStart.get();
+            return active <= 0 ? 0 : processed.get() * 1e9 / active;
+        }
+
+        double getMillisPerImage() {
+            int images = processed.get() + failed.get();
+            return images == 0 ? 0 : busyNanos.get() / 1e6 / images;
+        }
+    }
+
+    /**
+     * Thread of a stage: takes images from the input queue until the end marker
+     */
+    private static class StageWorker extends Thread {
+        private final Stage stage;
+
+        StageWorker(Stage stage) {
+            super(stage.name);
+            this.stage = stage;
+        }
+
+        @Override
+        public void run() {
+            try {
+                processJobs();
+                finish();
+            } catch (InterruptedException e) {
+                System.err.println("Pipeline stage " + stage.name + " was interrupted: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+
+        private void processJobs() throws InterruptedException {
+            ImageJob job;
+            while ((job = stage.input.take()) != END) {
+                long start = System.nanoTime();
+                stage.firstStart.accumulateAndGet(start, Math::min);
+                boolean passed = applyStep(job);
+                long end = System.nanoTime();
+                stage.busyNanos.addAndGet(end - start);
+                stage.lastEnd.accumulateAndGet(end, Math::max);
+
+                if (passed && stage.output != null) {
+                    stage.output.put(job);
+                    stage.blockedNanos.addAndGet(System.nanoTime() - end);
+                }
+            }
+            stage.input.put(END);
+        }
+
+        /**
+         * Runs the step on an image; an image that fails is reported and dropped
+         */
+        private boolean applyStep(ImageJob job) {
+            try {
+                boolean passed = stage.step.apply(job);
+                (passed ? stage.processed : stage.failed).incrementAndGet();
+                if (!passed) {
+                    System.err.println("Pipeline stage " + stage.name + " failed on " + job.path);
+                }
+                return passed;
+            } catch (RuntimeException | OutOfMemoryError e) {
+                System.err.println("Pipeline stage " + stage.name + " failed on " + job.path + ": " + e);
+                e.printStackTrace();
+                stage.failed.incrementAndGet();
+                return false;
+            }
+        }
+
+        /**
+         * Passes the end marker on once every worker of the stage has seen it
+         */
+        private void finish() throws InterruptedException {
+            if (stage.running.decrementAndGet() == 0 && stage.output != null) {
+                stage.output.put(END);
+            }
+        }
+    }
+}
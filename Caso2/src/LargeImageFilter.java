@@ -0,0 +1,70 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import image.StreamingSobelFilter;
+
+/**
+ * Applies the Sobel filter to BMP files too large to load, streaming their rows through
+ * StreamingSobelFilter. Memory use depends on the width of each image only, so scans that
+ * would not fit in the heap as an Image (or as two, input and output) can be filtered.
+ *
+ * Usage: LargeImageFilter <input.bmp>... ; each result goes to output/filtered/<name>_sal.bmp
+ */
+public class LargeImageFilter {
+    // Constants
+    private static final String OUTPUT_DIRECTORY = "output/filtered";
+    private static final String IMAGE_EXTENSION = ".bmp";
+    private static final String OUTPUT_SUFFIX = "_sal.bmp";
+    private static final String USAGE = "Usage: LargeImageFilter <input.bmp>...";
+    private static final int EXIT_USAGE = 2;
+    private static final int EXIT_FAILED = 1;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println(USAGE);
+            System.exit(EXIT_USAGE);
+        }
+
+        Files.createDirectories(Paths.get(OUTPUT_DIRECTORY));
+        int failed = 0;
+        for (String input : args) {
+            if (!filterImage(Paths.get(input))) {
+                failed++;
+            }
+        }
+
+        if (failed > 0) {
+            System.exit(EXIT_FAILED);
+        }
+    }
+
+    /**
+     * Streams one image through the filter and prints its size and the time taken
+     *
+     * @return Whether the image was filtered
+     */
+    private static boolean filterImage(Path input) {
+        Path output = Paths.get(OUTPUT_DIRECTORY, outputName(input));
+        long startTime = System.nanoTime();
+
+        StreamingSobelFilter filter = new StreamingSobelFilter(input.toString(), output.toString());
+        if (!filter.applySobel()) {
+            System.err.println("Error filtering " + input);
+            return false;
+        }
+
+        System.out.printf("%s: %d x %d px in %.2f s -> %s%n", input, filter.getWidth(), filter.getHeight(),
+                (System.nanoTime() - startTime) / 1e9, output);
+        return true;
+    }
+
+    private static String outputName(Path input) {
+        String name = input.getFileName().toString();
+        if (name.toLowerCase().endsWith(IMAGE_EXTENSION)) {
+            name = name.substring(0, name.length() - IMAGE_EXTENSION.length());
+        }
+        return name + OUTPUT_SUFFIX;
+    }
+}
@@ -1,63 +1,644 @@
-import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import memory.AddressTrace;
+import memory.EngineVerifier;
+import memory.MissRatioCurve;
+import memory.PageMap;
+import memory.ReferenceTrace;
+import memory.SimulationMetrics;
+import memory.SimulationOptions;
+import memory.TlbModel;
+import memory.prefetch.PrefetchPolicy;
+import results.ResultSink;
+import trace.MemoryLayout;
+import trace.TraceCache;
+import trace.Traversal;
 
 public class Main {
     // Constants
     private static final String DEFAULT_IMAGE_PATH = "images/caso2-parrotspeq.bmp";
     private static final String REFERENCES_FILE_PATH = "references.txt";
-    private static final String DATA_OUTPUT_PATH = "output/data.txt";
+    private static final String OUTPUT_DIRECTORY = "output";
+    private static final String RESULTS_CSV_PATH = "output/results.csv";
+    private static final String RESULTS_JSON_PATH = "output/results.jsonl";
+    private static final String METRICS_OUTPUT_PATH = "output/metrics.txt";
+    private static final boolean USE_TRACE_CACHE = true; // Reuse traces generated by earlier runs
+    private static final String TRACE_CACHE_PATH = "cache/traces";
+    private static final long TRACE_CACHE_BYTES = 512L << 20; // Older traces are evicted beyond 512 MB
     private static final int DEFAULT_PAGE_SIZE = 512;
     private static final int DEFAULT_FRAME_COUNT = 4;
     private static final boolean GENERATE_GRAPH_DATA = true;
     private static final int[] AVAILABLE_PAGE_SIZES = { 512, 1024, 2048 };
     private static final int[] AVAILABLE_FRAME_COUNTS = { 4, 6 };
-    private static final String DATA_HEADER = "page_size frames_assigned number_hits number_faults";
+    private static final int TIME_SERIES_WINDOW = 10000; // References per time series window (0 disables it)
+    private static final long CHECKPOINT_INTERVAL = 0; // References between checkpoints (0 disables them)
+    private static final int READER_BATCH_RUNS = 1024; // Runs per block of the Reader (0: bits set per reference)
+    private static final String SINGLE_SCENARIO = "single";
+    private static final String SWEEP_SCENARIO = "sweep";
+    private static final String TRAVERSAL_SCENARIO = "traversal";
+    private static final String LAYOUT_SCENARIO = "layout";
+    private static final String PREFETCH_SCENARIO = "prefetch";
+    private static final String PAGE_MIX_SCENARIO = "page-mix";
+    private static final String COMPRESSED_SCENARIO = "compressed";
+    private static final boolean COLLAPSE_TRACES = false; // Write run-length collapsed traces
+    private static final boolean ADDRESS_TRACE = true; // Sweep page sizes with a single byte-address trace
+    private static final boolean TRACE_KERNEL = false; // Trace SobelFilter itself instead of the generator
+    private static final boolean COMPARE_TRAVERSALS = false;
+    private static final int TRAVERSAL_BLOCK_SIZE = 8; // Tile side and band height
+    private static final boolean COMPARE_LAYOUTS = false;
+    private static final boolean ESTIMATE_MISS_RATIO = false; // Sampled LRU miss ratio curves vs exact ones
+    private static final double[] SAMPLING_RATES = { 0.5, 0.25, 0.1 };
+    private static final int SAMPLING_SEEDS = 8; // Page samples per rate, to measure the error spread
+    private static final int[] CURVE_FRAME_COUNTS = { 2, 4, 6, 8, 16, 32 };
+    private static final PrefetchPolicy PREFETCH_POLICY = PrefetchPolicy.NONE;
+    private static final int PREFETCH_DEPTH = 2; // Most pages read ahead per fault
+    private static final boolean COMPARE_PREFETCH = false;
+    private static final int[] PREFETCH_DEPTHS = { 1, 2, 4 };
+    private static final boolean COMPARE_PAGE_MIXES = false; // Base, huge and mixed page sizes
+    private static final int HUGE_PAGE_SIZE = 4096; // 8 base pages
+    private static final int[] MIXED_FRAME_COUNTS = { 16, 24, 32 }; // Base frames: 8, 12 and 16 KB
+    private static final int TLB_BASE_ENTRIES = 16;
+    private static final int TLB_HUGE_ENTRIES = 4;
+    private static final boolean COMPARE_COMPRESSED_SWAP = false; // Swap I/O with and without a compressed tier
+    private static final int[] COMPRESSED_POOL_FRAMES = { 0, 1, 2, 4 }; // Pool size in frames of RAM (0: none)
+    private static final double COMPRESSION_RATIO = 3.0; // Typical of lz4/zstd on program data
+    private static final boolean VERIFY_ENGINES = false; // Batched Reader against the per-reference one
+    private static final long VERIFY_INSPECTOR_PERIOD = 5000; // References between R bit resets
+    private static final MemoryLayout[] LAYOUTS = {
+            MemoryLayout.PACKED,
+            new MemoryLayout("page-aligned", true, false, false, 0),
+            new MemoryLayout("filters-first", false, true, false, 0),
+            new MemoryLayout("filters-first-aligned", true, true, false, 0),
+            new MemoryLayout("planar", false, false, true, 0),
+            new MemoryLayout("planar-aligned", true, false, true, 0),
+            new MemoryLayout("gap-one-page", false, false, false, DEFAULT_PAGE_SIZE)
+    };
+
+    // Results of every scenario of this run, written once at the end
+    private static final ResultSink RESULTS = new ResultSink();
+    private static final TraceCache TRACE_CACHE = new TraceCache(Paths.get(TRACE_CACHE_PATH), TRACE_CACHE_BYTES);
 
     public static void main(String[] args) throws Exception {
+        clearMetricsFile();
         runSingleScenario();
 
+        if (COMPARE_TRAVERSALS) {
+            runTraversalComparison();
+        }
+
+        if (COMPARE_LAYOUTS) {
+            runLayoutComparison();
+        }
+
+        if (COMPARE_PREFETCH) {
+            runPrefetchComparison();
+        }
+
+        if (COMPARE_PAGE_MIXES) {
+            runPageMixComparison();
+        }
+
+        if (COMPARE_COMPRESSED_SWAP) {
+            runCompressedSwapComparison();
+        }
+
+        if (VERIFY_ENGINES) {
+            runEngineVerification();
+        }
+
+        if (ESTIMATE_MISS_RATIO) {
+            runMissRatioEstimation();
+        }
+
         if (GENERATE_GRAPH_DATA) {
             runMultipleScenarios();
         }
 
+        writeResults();
         displayCompletionMessage();
     }
 
     private static void runSingleScenario() throws Exception {
-        Option1 option1 = generateReferences(DEFAULT_PAGE_SIZE);
-        simulateMemoryManagement(DEFAULT_FRAME_COUNT);
+        generateReferences(DEFAULT_PAGE_SIZE);
+        simulateMemoryManagement(DEFAULT_FRAME_COUNT, SINGLE_SCENARIO, describeTrace(Traversal.ROW_MAJOR,
+                MemoryLayout.PACKED));
+    }
+
+    private static void generateReferences(int pageSize) {
+        generateReferences(pageSize, Traversal.ROW_MAJOR, MemoryLayout.PACKED);
     }
 
-    private static Option1 generateReferences(int pageSize) {
-        Option1 option1 = new Option1(pageSize, Main.DEFAULT_IMAGE_PATH);
+    /**
+     * Writes the references file, from the trace cache when the same image and options
+     * were generated before
+     */
+    private static void generateReferences(int pageSize, Traversal traversal, MemoryLayout layout) {
+        generateReferences(pageSize, traversal, layout, false);
+    }
+
+    static void generateReferences(int pageSize, Traversal traversal, MemoryLayout layout, boolean addressTrace) {
+        String cacheKey = traceCacheKey(pageSize, traversal, layout, addressTrace);
+        if (restoreCachedTrace(cacheKey)) {
+            return;
+        }
+
+        Option1 option1 = new Option1(pageSize, Main.DEFAULT_IMAGE_PATH, traversal, TRAVERSAL_BLOCK_SIZE);
+        option1.setLayout(layout);
+        option1.setAddressTrace(addressTrace);
+        option1.setCollapsed(COLLAPSE_TRACES);
+        option1.setKernelTracing(TRACE_KERNEL);
         option1.calculateNumberOfPages();
         option1.simulateReferences();
-        option1.writeReferences();
-        return option1;
+
+        // A failed write leaves a stale or truncated file that must not be cached
+        if (option1.writeReferences()) {
+            storeCachedTrace(cacheKey);
+        }
+    }
+
+    /**
+     * Returns the cache key of a trace, or null when the cache is disabled or the image unreadable
+     */
+    private static String traceCacheKey(int pageSize, Traversal traversal, MemoryLayout layout,
+                                        boolean addressTrace) {
+        if (!USE_TRACE_CACHE) {
+            return null;
+        }
+
+        String options = "pageSize=" + pageSize + ";traversal=" + traversal + ";blockSize=" + TRAVERSAL_BLOCK_SIZE
+                + ";layout=" + layout.describeOptions() + ";collapsed=" + COLLAPSE_TRACES + ";kernel=" + TRACE_KERNEL
+                + ";addresses=" + addressTrace;
+        try {
+            return TraceCache.key(Paths.get(DEFAULT_IMAGE_PATH), options);
+        } catch (IOException e) {
+            System.err.println("Error reading image for the trace cache: " + e.getMessage());
+            return null;
+        }
     }
 
-    private static void simulateMemoryManagement(int frameCount) {
-        Option2 option2 = new Option2(frameCount, REFERENCES_FILE_PATH);
+    private static boolean restoreCachedTrace(String cacheKey) {
+        if (cacheKey == null) {
+            return false;
+        }
+
+        try {
+            return TRACE_CACHE.restore(cacheKey, Paths.get(REFERENCES_FILE_PATH));
+        } catch (IOException e) {
+            System.err.println("Error reading the trace cache: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static void storeCachedTrace(String cacheKey) {
+        if (cacheKey == null) {
+            return;
+        }
+
+        try {
+            TRACE_CACHE.store(cacheKey, Paths.get(REFERENCES_FILE_PATH));
+        } catch (IOException e) {
+            System.err.println("Error writing to the trace cache: " + e.getMessage());
+        }
+    }
+
+    private static String describeTrace(Traversal traversal, MemoryLayout layout) {
+        return traversal + "/" + layout + (COLLAPSE_TRACES ? "/runs" : "") + (TRACE_KERNEL ? "/kernel" : "");
+    }
+
+    private static Option2 simulateMemoryManagement(int frameCount, String scenario, String trace) {
+        Option2 option2 = new Option2(frameCount, REFERENCES_FILE_PATH, createSimulationOptions(scenario, trace));
         option2.startAndWait();
+        return option2;
+    }
+
+    private static SimulationOptions createSimulationOptions(String scenario, String trace) {
+        return new SimulationOptions()
+                .withTimeSeriesWindow(TIME_SERIES_WINDOW)
+                .withCheckpointInterval(CHECKPOINT_INTERVAL)
+                .withBatchRuns(READER_BATCH_RUNS)
+                .withPrefetch(PREFETCH_POLICY, PREFETCH_DEPTH)
+                .withResults(RESULTS, scenario, trace);
+    }
+
+    private static void runTraversalComparison() {
+        Traversal[] traversals = Traversal.values();
+        int[][] faults = new int[traversals.length][AVAILABLE_FRAME_COUNTS.length];
+
+        for (int t = 0; t < traversals.length; t++) {
+            generateReferences(DEFAULT_PAGE_SIZE, traversals[t], MemoryLayout.PACKED);
+            simulateFrameCounts(faults[t], TRAVERSAL_SCENARIO, describeTrace(traversals[t], MemoryLayout.PACKED));
+        }
+
+        displayFaultComparison("traversal (block " + TRAVERSAL_BLOCK_SIZE + ")", traversals, faults);
+    }
+
+    private static void runLayoutComparison() {
+        int[][] faults = new int[LAYOUTS.length][AVAILABLE_FRAME_COUNTS.length];
+
+        for (int l = 0; l < LAYOUTS.length; l++) {
+            generateReferences(DEFAULT_PAGE_SIZE, Traversal.ROW_MAJOR, LAYOUTS[l]);
+            simulateFrameCounts(faults[l], LAYOUT_SCENARIO, describeTrace(Traversal.ROW_MAJOR, LAYOUTS[l]));
+        }
+
+        displayFaultComparison("memory layout", LAYOUTS, faults);
+    }
+
+    private static void simulateFrameCounts(int[] faults, String scenario, String trace) {
+        for (int f = 0; f < AVAILABLE_FRAME_COUNTS.length; f++) {
+            faults[f] = simulateMemoryManagement(AVAILABLE_FRAME_COUNTS[f], scenario, trace).getFaults();
+        }
+    }
+
+    private static void displayFaultComparison(String criterion, Object[] labels, int[][] faults) {
+        System.out.println("\n|-----------------------------------------------------------|");
+        System.out.printf("    Page faults by %s (page size %d)%n", criterion, DEFAULT_PAGE_SIZE);
+        System.out.printf("    %-22s", "");
+        for (int frameCount : AVAILABLE_FRAME_COUNTS) {
+            System.out.printf("%12s", frameCount + " frames");
+        }
+        System.out.println();
+
+        for (int i = 0; i < labels.length; i++) {
+            System.out.printf("    %-22s", labels[i]);
+            for (int fault : faults[i]) {
+                System.out.printf("%12d", fault);
+            }
+            System.out.println();
+        }
+        System.out.println("|-----------------------------------------------------------|");
+    }
+
+    /**
+     * Simulates every prefetch policy and depth for each page size and frame count from one
+     * address trace, and prints demand faults, prefetch hits and wasted prefetches side by side
+     */
+    private static void runPrefetchComparison() {
+        generateReferences(DEFAULT_PAGE_SIZE, Traversal.ROW_MAJOR, MemoryLayout.PACKED, true);
+        AddressTrace addresses = Option2.readAddressTrace(REFERENCES_FILE_PATH);
+        String trace = Traversal.ROW_MAJOR + "/" + MemoryLayout.PACKED + "/addresses";
+        String[] labels = prefetchLabels();
+
+        for (int pageSize : AVAILABLE_PAGE_SIZES) {
+            ReferenceTrace references = addresses.toReferenceTrace(pageSize);
+            long[][][] outcomes = new long[labels.length][AVAILABLE_FRAME_COUNTS.length][];
+
+            int row = 0;
+            for (PrefetchPolicy policy : PrefetchPolicy.values()) {
+                for (int depth : prefetchDepths(policy)) {
+                    for (int f = 0; f < AVAILABLE_FRAME_COUNTS.length; f++) {
+                        SimulationOptions options = createSimulationOptions(PREFETCH_SCENARIO, trace)
+                                .withPrefetch(policy, depth);
+                        Option2 option2 = new Option2(AVAILABLE_FRAME_COUNTS[f], pageSize,
+                                addresses.pageCount(pageSize), references, options);
+                        option2.startAndWait();
+                        outcomes[row][f] = new long[] { option2.getFaults(), option2.getPrefetchHits(),
+                                option2.getWastedPrefetches() };
+                    }
+                    row++;
+                }
+            }
+
+            displayPrefetchComparison(pageSize, labels, outcomes);
+        }
+    }
+
+    /**
+     * Returns the depths compared for a policy; NONE ignores the depth, so it runs once
+     */
+    private static int[] prefetchDepths(PrefetchPolicy policy) {
+        return policy == PrefetchPolicy.NONE ? new int[] { 0 } : PREFETCH_DEPTHS;
+    }
+
+    private static String[] prefetchLabels() {
+        List<String> labels = new ArrayList<>();
+        for (PrefetchPolicy policy : PrefetchPolicy.values()) {
+            for (int depth : prefetchDepths(policy)) {
+                labels.add(policy == PrefetchPolicy.NONE ? policy.toString() : policy + " " + depth);
+            }
+        }
+        return labels.toArray(new String[0]);
+    }
+
+    private static void displayPrefetchComparison(int pageSize, String[] labels, long[][][] outcomes) {
+        System.out.println("\n|-----------------------------------------------------------|");
+        System.out.printf("    Demand faults / prefetch hits / wasted prefetches (page size %d)%n", pageSize);
+        System.out.printf("    %-14s", "");
+        for (int frameCount : AVAILABLE_FRAME_COUNTS) {
+            System.out.printf("%26s", frameCount + " frames");
+        }
+        System.out.println();
+
+        for (int i = 0; i < labels.length; i++) {
+            System.out.printf("    %-14s", labels[i]);
+            for (long[] outcome : outcomes[i]) {
+                System.out.printf("%10d%8d%8d", outcome[0], outcome[1], outcome[2]);
+            }
+            System.out.println();
+        }
+        System.out.println("|-----------------------------------------------------------|");
+    }
+
+    /**
+     * Simulates the address space on base pages only, on huge pages only and with the images
+     * on huge pages and the filters on base pages, with the same memory budgets, and replays
+     * each mapping through a TLB model
+     */
+    private static void runPageMixComparison() {
+        generateReferences(DEFAULT_PAGE_SIZE, Traversal.ROW_MAJOR, MemoryLayout.PACKED, true);
+        AddressTrace addresses = Option2.readAddressTrace(REFERENCES_FILE_PATH);
+        Option1 option1 = new Option1(DEFAULT_PAGE_SIZE, DEFAULT_IMAGE_PATH);
+        option1.calculateNumberOfPages();
+
+        String[] labels = { "base " + DEFAULT_PAGE_SIZE, "huge " + HUGE_PAGE_SIZE, "mixed" };
+        PageMap[] maps = {
+                PageMap.uniform(addresses.getAddressSpaceBytes(), DEFAULT_PAGE_SIZE),
+                option1.createPageMap(HUGE_PAGE_SIZE, HUGE_PAGE_SIZE),
+                option1.createPageMap(HUGE_PAGE_SIZE, DEFAULT_PAGE_SIZE)
+        };
+        int[][] faults = new int[maps.length][MIXED_FRAME_COUNTS.length];
+        TlbModel[] tlbs = new TlbModel[maps.length];
+
+        for (int m = 0; m < maps.length; m++) {
+            ReferenceTrace references = addresses.toReferenceTrace(maps[m]);
+            tlbs[m] = new TlbModel(TLB_BASE_ENTRIES, TLB_HUGE_ENTRIES, DEFAULT_PAGE_SIZE);
+            tlbs[m].replay(references, maps[m]);
+
+            String trace = Traversal.ROW_MAJOR + "/" + MemoryLayout.PACKED + "/" + labels[m];
+            for (int f = 0; f < MIXED_FRAME_COUNTS.length; f++) {
+                Option2 option2 = new Option2(MIXED_FRAME_COUNTS[f], DEFAULT_PAGE_SIZE, maps[m].pageCount(),
+                        references, createSimulationOptions(PAGE_MIX_SCENARIO, trace).withPageMap(maps[m]));
+                option2.startAndWait();
+                faults[m][f] = option2.getFaults();
+            }
+        }
+
+        displayPageMixComparison(labels, maps, faults, tlbs);
+    }
+
+    private static void displayPageMixComparison(String[] labels, PageMap[] maps, int[][] faults, TlbModel[] tlbs) {
+        System.out.println("\n|-----------------------------------------------------------|");
+        System.out.printf("    Page faults and TLB by page sizes (frames of %d bytes, TLB %d + %d entries)%n",
+                DEFAULT_PAGE_SIZE, TLB_BASE_ENTRIES, TLB_HUGE_ENTRIES);
+        System.out.printf("    %-12s%7s", "", "pages");
+        for (int frameCount : MIXED_FRAME_COUNTS) {
+            System.out.printf("%11s", frameCount + " frames");
+        }
+        System.out.printf("%12s%12s%n", "TLB misses", "TLB reach");
+
+        for (int m = 0; m < maps.length; m++) {
+            System.out.printf("    %-12s%7d", labels[m], maps[m].pageCount());
+            for (int fault : faults[m]) {
+                System.out.printf("%11d", fault);
+            }
+            System.out.printf("%12d%12d%n", tlbs[m].getMisses(), tlbs[m].getReach());
+        }
+        System.out.println("|-----------------------------------------------------------|");
+    }
+
+    /**
+     * Simulates each page size and frame count with compressed tiers of several sizes from one
+     * address trace, and prints the faults served by the tier and the swap I/O left. The pool
+     * is carved out of the frames, so every column compares the same total RAM; a pool that
+     * leaves no frame is skipped
+     */
+    private static void runCompressedSwapComparison() {
+        generateReferences(DEFAULT_PAGE_SIZE, Traversal.ROW_MAJOR, MemoryLayout.PACKED, true);
+        AddressTrace addresses = Option2.readAddressTrace(REFERENCES_FILE_PATH);
+        String trace = Traversal.ROW_MAJOR + "/" + MemoryLayout.PACKED + "/addresses";
+
+        for (int pageSize : AVAILABLE_PAGE_SIZES) {
+            ReferenceTrace references = addresses.toReferenceTrace(pageSize);
+            SimulationMetrics[][] metrics =
+                    new SimulationMetrics[COMPRESSED_POOL_FRAMES.length][AVAILABLE_FRAME_COUNTS.length];
+
+            for (int p = 0; p < COMPRESSED_POOL_FRAMES.length; p++) {
+                for (int f = 0; f < AVAILABLE_FRAME_COUNTS.length; f++) {
+                    int frames = AVAILABLE_FRAME_COUNTS[f] - COMPRESSED_POOL_FRAMES[p];
+                    if (frames <= 0) {
+                        continue;
+                    }
+
+                    SimulationOptions options = createSimulationOptions(COMPRESSED_SCENARIO, trace)
+                            .withCompressedSwap((long) COMPRESSED_POOL_FRAMES[p] * pageSize, COMPRESSION_RATIO);
+                    Option2 option2 = new Option2(frames, pageSize,
+                            addresses.pageCount(pageSize), references, options);
+                    option2.startAndWait();
+                    metrics[p][f] = option2.getMetrics();
+                }
+            }
+
+            displayCompressedSwapComparison(pageSize, metrics);
+        }
+    }
+
+    /**
+     * Prints, for each pool size and total RAM in frames, the loads from the tier, the swap reads
+     * plus writes, the share of the swap I/O without a tier that is removed, and the paging cost
+     */
+    private static void displayCompressedSwapComparison(int pageSize, SimulationMetrics[][] metrics) {
+        System.out.println("\n|-----------------------------------------------------------|");
+        System.out.printf("    Tier loads / swap I/O / removed / paging ms (page size %d, ratio %.1f)%n", pageSize,
+                COMPRESSION_RATIO);
+        System.out.printf("    %-12s", "pool frames");
+        for (int frameCount : AVAILABLE_FRAME_COUNTS) {
+            System.out.printf("%32s", frameCount + " frames of RAM");
+        }
+        System.out.println();
+
+        for (int p = 0; p < COMPRESSED_POOL_FRAMES.length; p++) {
+            System.out.printf("    %-12d", COMPRESSED_POOL_FRAMES[p]);
+            for (int f = 0; f < AVAILABLE_FRAME_COUNTS.length; f++) {
+                if (metrics[p][f] == null) {
+                    System.out.printf("%32s", "-");
+                    continue;
+                }
+                long baseline = swapOperations(metrics[0][f]);
+                long swapIo = swapOperations(metrics[p][f]);
+                double removed = baseline == 0 ? 0 : (double) (baseline - swapIo) * 100 / baseline;
+                System.out.printf("%8d%8d%7.1f%%%8.1f", metrics[p][f].getCompressedLoads(), swapIo, removed,
+                        pagingMillis(metrics[p][f]));
+            }
+            System.out.println();
+        }
+        System.out.println("|-----------------------------------------------------------|");
+    }
+
+    private static long swapOperations(SimulationMetrics metrics) {
+        return metrics.getSwapReads() + metrics.getSwapWrites();
+    }
+
+    private static double pagingMillis(SimulationMetrics metrics) {
+        return (metrics.getDiskMicros() + metrics.getSwapMicros() + metrics.getCompressedMicros()) / 1000;
+    }
+
+    /**
+     * Simulates each page size and frame count with the per-reference Reader and the batched
+     * one under the same deterministic Inspector schedule, and prints where they diverge.
+     * The timed Inspector is not covered: its resets depend on thread timing.
+     */
+    private static void runEngineVerification() {
+        generateReferences(DEFAULT_PAGE_SIZE, Traversal.ROW_MAJOR, MemoryLayout.PACKED, true);
+        AddressTrace addresses = Option2.readAddressTrace(REFERENCES_FILE_PATH);
+        EngineVerifier.Outcome[][] outcomes =
+                new EngineVerifier.Outcome[AVAILABLE_PAGE_SIZES.length][AVAILABLE_FRAME_COUNTS.length];
+
+        for (int p = 0; p < AVAILABLE_PAGE_SIZES.length; p++) {
+            int pageSize = AVAILABLE_PAGE_SIZES[p];
+            ReferenceTrace references = addresses.toReferenceTrace(pageSize);
+
+            for (int f = 0; f < AVAILABLE_FRAME_COUNTS.length; f++) {
+                SimulationOptions reference = new SimulationOptions().withTimeSeriesWindow(0)
+                        .withInspectorPeriod(VERIFY_INSPECTOR_PERIOD);
+                SimulationOptions candidate = new SimulationOptions().withTimeSeriesWindow(0)
+                        .withInspectorPeriod(VERIFY_INSPECTOR_PERIOD).withBatchRuns(READER_BATCH_RUNS);
+                outcomes[p][f] = EngineVerifier.compare(AVAILABLE_FRAME_COUNTS[f], addresses.pageCount(pageSize),
+                        pageSize, references, reference, candidate);
+            }
+        }
+
+        displayEngineVerification(outcomes);
+    }
+
+    private static void displayEngineVerification(EngineVerifier.Outcome[][] outcomes) {
+        System.out.println("\n|-----------------------------------------------------------|");
+        System.out.printf("    Batched (%d runs) vs per-reference Reader, reset every %d references%n",
+                READER_BATCH_RUNS, VERIFY_INSPECTOR_PERIOD);
+        System.out.println("    (deterministic Inspector only; the timed Inspector is not verified)");
+
+        for (int p = 0; p < AVAILABLE_PAGE_SIZES.length; p++) {
+            for (int f = 0; f < AVAILABLE_FRAME_COUNTS.length; f++) {
+                EngineVerifier.Outcome outcome = outcomes[p][f];
+                System.out.printf("    page size %-6d %2d frames %8d faults %8d evictions  %s%n",
+                        AVAILABLE_PAGE_SIZES[p], AVAILABLE_FRAME_COUNTS[f], outcome.getReferenceFaults(),
+                        outcome.getEvictionCount(), outcome.describe());
+            }
+        }
+        System.out.println("|-----------------------------------------------------------|");
+    }
+
+    private static void runMissRatioEstimation() {
+        for (int pageSize : AVAILABLE_PAGE_SIZES) {
+            Option1 option1 = new Option1(pageSize, DEFAULT_IMAGE_PATH);
+            option1.calculateNumberOfPages();
+            ReferenceTrace trace = option1.traceSobelKernelRuns();
+            int maxFrames = option1.getPageCount();
+
+            MissRatioCurve exact = MissRatioCurve.exact(trace, option1.getPageCount(), maxFrames);
+            MissRatioCurve[][] sampled = new MissRatioCurve[SAMPLING_RATES.length][SAMPLING_SEEDS];
+            for (int r = 0; r < SAMPLING_RATES.length; r++) {
+                for (int seed = 0; seed < SAMPLING_SEEDS; seed++) {
+                    sampled[r][seed] = MissRatioCurve.sampled(trace, option1.getPageCount(), maxFrames,
+                            SAMPLING_RATES[r], seed);
+                }
+            }
+
+            displayMissRatioCurves(pageSize, exact, sampled);
+        }
+    }
+
+    private static void displayMissRatioCurves(int pageSize, MissRatioCurve exact, MissRatioCurve[][] sampled) {
+        System.out.println("\n|-----------------------------------------------------------|");
+        System.out.printf("    LRU faults by frames (page size %d, %d references)%n", pageSize,
+                exact.getReferenceCount());
+        System.out.printf("    %-22s", "");
+        for (int frames : CURVE_FRAME_COUNTS) {
+            System.out.printf("%10s", frames + " fr");
+        }
+        System.out.printf("%12s%12s%n", "sampled", "max error");
+
+        System.out.printf("    %-22s", "exact");
+        for (int frames : CURVE_FRAME_COUNTS) {
+            System.out.printf("%10.0f", exact.getFaults(frames));
+        }
+        System.out.println();
+
+        for (int r = 0; r < SAMPLING_RATES.length; r++) {
+            double sampledReferences = 0;
+            double maxError = 0;
+            for (MissRatioCurve curve : sampled[r]) {
+                sampledReferences += (double) curve.getSampledReferences() / SAMPLING_SEEDS;
+                maxError = Math.max(maxError, curve.maxError(exact));
+            }
+
+            System.out.printf("    %-22s", "rate " + SAMPLING_RATES[r] + " (mean)");
+            for (int frames : CURVE_FRAME_COUNTS) {
+                System.out.printf("%10.0f", meanFaults(sampled[r], frames));
+            }
+            System.out.printf("%11.1f%%%12.5f%n", sampledReferences * 100 / exact.getReferenceCount(), maxError);
+        }
+        System.out.println("    max error: largest miss ratio difference over all frame counts and seeds");
+        System.out.println("|-----------------------------------------------------------|");
+    }
+
+    private static double meanFaults(MissRatioCurve[] curves, int frames) {
+        double sum = 0;
+        for (MissRatioCurve curve : curves) {
+            sum += curve.getFaults(frames);
+        }
+        return sum / curves.length;
     }
 
     private static void runMultipleScenarios() throws Exception {
-        clearDataFile();
+        if (ADDRESS_TRACE) {
+            runAddressTraceScenarios();
+            return;
+        }
+
+        String trace = describeTrace(Traversal.ROW_MAJOR, MemoryLayout.PACKED);
 
         for (int pageSize : AVAILABLE_PAGE_SIZES) {
             generateReferences(pageSize);
 
             for (int frameCount : AVAILABLE_FRAME_COUNTS) {
-                simulateMemoryManagement(frameCount);
+                simulateMemoryManagement(frameCount, SWEEP_SCENARIO, trace);
+            }
+        }
+    }
+
+    /**
+     * Runs the same sweep as runMultipleScenarios() from a single byte-address trace,
+     * generated and loaded once, instead of one trace per page size
+     */
+    private static void runAddressTraceScenarios() {
+        generateReferences(DEFAULT_PAGE_SIZE, Traversal.ROW_MAJOR, MemoryLayout.PACKED, true);
+        AddressTrace addresses = Option2.readAddressTrace(REFERENCES_FILE_PATH);
+        String trace = Traversal.ROW_MAJOR + "/" + MemoryLayout.PACKED + "/addresses";
+
+        for (int pageSize : AVAILABLE_PAGE_SIZES) {
+            ReferenceTrace references = addresses.toReferenceTrace(pageSize);
+
+            for (int frameCount : AVAILABLE_FRAME_COUNTS) {
+                Option2 option2 = new Option2(frameCount, pageSize, addresses.pageCount(pageSize), references,
+                        createSimulationOptions(SWEEP_SCENARIO, trace));
+                option2.startAndWait();
             }
         }
     }
 
-    private static void clearDataFile() {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(DATA_OUTPUT_PATH, false))) {
-            bw.write(DATA_HEADER);
-            bw.newLine();
+    private static void writeResults() {
+        try {
+            RESULTS.writeCsv(Paths.get(RESULTS_CSV_PATH));
+            RESULTS.writeJsonLines(Paths.get(RESULTS_JSON_PATH));
+        } catch (IOException e) {
+            System.err.println("Error writing to file: " + e.getMessage());
+        }
+    }
+
+    private static void clearMetricsFile() {
+        // Metrics are appended per scenario by the Reader; the directory is not tracked
+        try {
+            Files.createDirectories(Paths.get(OUTPUT_DIRECTORY));
+        } catch (IOException e) {
+            System.err.println("Error creating directory: " + e.getMessage());
+        }
+
+        try (FileWriter fw = new FileWriter(METRICS_OUTPUT_PATH, false)) {
+            fw.flush();
         } catch (IOException e) {
             System.err.println("Error writing to file: " + e.getMessage());
         }
@@ -2,7 +2,20 @@ import java.io.FileNotFoundException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 
+import image.FilterMatrix;
 import image.Image;
+import image.ImageBufferPool;
+import image.PixelMatrix;
+import image.SobelFilter;
+import memory.PageMap;
+import memory.ReferenceTrace;
+import trace.MemoryLayout;
+import trace.RunTraceSink;
+import trace.TextTraceSink;
+import trace.TraceSink;
+import trace.TracedFilterMatrix;
+import trace.TracedPixelMatrix;
+import trace.Traversal;
 
 public class Option1 {
     // Constants for file fields
@@ -11,6 +24,10 @@ public class Option1 {
     private static final String COL_COUNT_FIELD = "NC=";
     private static final String REF_COUNT_FIELD = "NR=";
     private static final String PAGE_COUNT_FIELD = "NP=";
+    private static final String FORMAT_FIELD = "FMT=";
+    private static final String RUNS_FORMAT = "RUNS";
+    private static final String ADDRESS_FORMAT = "ADDR";
+    private static final String ADDRESS_BYTES_FIELD = "NB=";
 
     // Constants for image operations
     private static final int BYTES_PER_PIXEL = 3; // RGB components
@@ -20,14 +37,20 @@ public class Option1 {
     private static final int BYTES_PER_INT = 4; // Size of an integer in bytes
 
     // Constants for reference operations
-    private static final String IMAGE_RED_FORMAT = "Image[%d][%d].r,%d,%d,R";
-    private static final String IMAGE_GREEN_FORMAT = "Image[%d][%d].g,%d,%d,R";
-    private static final String IMAGE_BLUE_FORMAT = "Image[%d][%d].b,%d,%d,R";
-    private static final String SOBEL_X_FORMAT = "SOBEL_X[%d][%d],%d,%d,R";
-    private static final String SOBEL_Y_FORMAT = "SOBEL_Y[%d][%d],%d,%d,R";
-    private static final String OUTPUT_RED_FORMAT = "Ans[%d][%d].r,%d,%d,W";
-    private static final String OUTPUT_GREEN_FORMAT = "Ans[%d][%d].g,%d,%d,W";
-    private static final String OUTPUT_BLUE_FORMAT = "Ans[%d][%d].b,%d,%d,W";
+    private static final String IMAGE_NAME = "Image";
+    private static final String SOBEL_X_NAME = "SOBEL_X";
+    private static final String SOBEL_Y_NAME = "SOBEL_Y";
+    private static final String OUTPUT_NAME = "Ans";
+    private static final char READ_ACTION = 'R';
+    private static final char WRITE_ACTION = 'W';
+    // Each neighbour reads RGB plus three SOBEL_X and three SOBEL_Y entries; each pixel writes RGB
+    private static final int REFERENCES_PER_PIXEL = FILTER_SIZE * FILTER_SIZE * 3 * BYTES_PER_PIXEL + BYTES_PER_PIXEL;
+
+    // Constants for parallel generation
+    private static final int GENERATOR_THREADS = Runtime.getRuntime().availableProcessors();
+    private static final int MIN_PIXELS_PER_SEGMENT = 1024;
+    private static final String THREAD_INTERRUPTED_ERROR = "Reference generation was interrupted: ";
+    private static final String GENERATOR_FAILED_ERROR = "A reference generator failed";
 
     private static final String REFERENCES_FILE_PATH = "references.txt";
     private static final String FILE_ERROR_MESSAGE = "Error writing to file: ";
@@ -38,34 +61,101 @@ public class Option1 {
     private int colCount;
     private int refCount;
     private int pageCount;
+    private int addressSpaceBytes;
     private Image image = null;
     private ArrayList<String> references = new ArrayList<>();
-    private int[] start_imageIn, start_imageOut, start_sobelX, start_sobelY;
+    private int start_imageIn, start_imageOut, start_sobelX, start_sobelY; // Virtual byte addresses
+    private Traversal traversal;
+    private int blockSize;
+    private MemoryLayout layout = MemoryLayout.PACKED;
+    private boolean collapsed = false;
+    private boolean kernelTracing = false;
+    private boolean addressTrace = false;
+    private ImageBufferPool imagePool = null;
 
     public Option1(int pageSize, String fileName) {
+        this(pageSize, fileName, Traversal.ROW_MAJOR, 1);
+    }
+
+    /**
+     * Creates a generator that models the Sobel loop with the given pixel traversal
+     *
+     * @param blockSize Tile side for TILED and band height for ROW_BAND
+     */
+    public Option1(int pageSize, String fileName, Traversal traversal, int blockSize) {
         this.pageSize = pageSize;
+        this.traversal = traversal;
+        this.blockSize = blockSize;
         loadImage(fileName);
     }
 
+    /**
+     * Sets the placement of the matrices in memory; must be called before calculateNumberOfPages()
+     */
+    public void setLayout(MemoryLayout layout) {
+        this.layout = layout;
+    }
+
+    /**
+     * Selects the run-length collapsed format for writeReferences(): consecutive references
+     * to the same page are written once as "page,action,count", with W if any of them writes.
+     * The counts match the expanded trace only under SimulationOptions.withInspectorPeriod().
+     */
+    public void setCollapsed(boolean collapsed) {
+        this.collapsed = collapsed;
+    }
+
+    /**
+     * Selects whether simulateReferences() runs the real Sobel kernel over traced matrices
+     * (exact for any kernel change, row-major only) or the built-in generator
+     */
+    public void setKernelTracing(boolean kernelTracing) {
+        this.kernelTracing = kernelTracing;
+    }
+
+    /**
+     * Selects a trace that serves every page size: each reference is written as
+     * "name,address,action" and the simulator derives the page when it loads the trace.
+     * Takes precedence over the collapsed format, whose runs depend on the page size.
+     * Page-aligned layouts are still aligned to the page size of this generator. The loaded
+     * trace is replayed in runs as well, with the same limit on the timed Inspector.
+     */
+    public void setAddressTrace(boolean addressTrace) {
+        this.addressTrace = addressTrace;
+    }
+
+    /**
+     * Takes the output matrix of the traced Sobel kernel from a pool and gives it back once
+     * the trace is recorded, instead of allocating one per trace
+     */
+    public void setImagePool(ImageBufferPool imagePool) {
+        this.imagePool = imagePool;
+    }
+
+    /**
+     * Creates a generator for an image already in memory, with the row-major traversal
+     */
+    public Option1(int pageSize, Image image) {
+        this.pageSize = pageSize;
+        this.traversal = Traversal.ROW_MAJOR;
+        this.blockSize = 1;
+        setImage(image);
+    }
+
     private void loadImage(String fileName) {
-        image = new Image(fileName);
+        setImage(new Image(fileName));
+    }
+
+    private void setImage(Image image) {
+        this.image = image;
         rowCount = image.height;
         colCount = image.width;
     }
 
     public void calculateNumberOfPages() {
-        int totalBytes = calculateTotalMemoryRequirements();
-        calculatePageCount(totalBytes);
-        calculateMatrixStartPositions();
-    }
-
-    private int calculateTotalMemoryRequirements() {
-        int bytesImageIn = calculateImageBytes();
-        int bytesImageOut = bytesImageIn;
-        int bytesSobelX = SOBEL_FILTER_SIZE;
-        int bytesSobelY = SOBEL_FILTER_SIZE;
-
-        return bytesImageIn + bytesImageOut + bytesSobelX + bytesSobelY;
+        MemoryLayout.Placement placement = layout.place(calculateImageBytes(), SOBEL_FILTER_SIZE, pageSize);
+        calculatePageCount(placement.totalBytes);
+        calculateMatrixStartPositions(placement);
     }
 
     private int calculateImageBytes() {
@@ -73,46 +163,116 @@ public class Option1 {
     }
 
     private void calculatePageCount(int totalBytes) {
+        addressSpaceBytes = totalBytes;
         pageCount = (int) Math.ceil((double) totalBytes / pageSize);
     }
 
-    private void calculateMatrixStartPositions() {
-        int byteOffset = 0;
+    private void calculateMatrixStartPositions(MemoryLayout.Placement placement) {
+        start_imageIn = placement.imageIn;
+        start_sobelX = placement.sobelX;
+        start_sobelY = placement.sobelY;
+        start_imageOut = placement.imageOut;
+    }
 
-        // Set start position for input image (always at beginning)
-        start_imageIn = new int[]{0, 0};
+    public void simulateReferences() {
+        if (kernelTracing) {
+            traceSobelKernel(newTextSink(references));
+        } else {
+            simulateSobelFilterExecution();
+        }
+        updateReferenceCount();
+    }
 
-        // Calculate start positions for other matrices
-        byteOffset += calculateImageBytes();
-        start_sobelX = calculateMatrixPosition(byteOffset);
+    private void simulateSobelFilterExecution() {
+        // Interior pixels (excluding border) in traversal order, split into consecutive segments
+        int[] order = traversal.interiorOrder(image.height, image.width, blockSize);
+        int segmentCount = calculateSegmentCount(order.length);
 
-        byteOffset += SOBEL_FILTER_SIZE;
-        start_sobelY = calculateMatrixPosition(byteOffset);
+        if (segmentCount <= 1) {
+            generatePixels(order, 0, order.length, references);
+            return;
+        }
 
-        byteOffset += SOBEL_FILTER_SIZE;
-        start_imageOut = calculateMatrixPosition(byteOffset);
+        SegmentGenerator[] generators = startSegmentGenerators(order, segmentCount);
+        collectSegments(generators);
     }
 
-    private int[] calculateMatrixPosition(int byteOffset) {
-        return new int[]{byteOffset / pageSize, byteOffset % pageSize};
+    private int calculateSegmentCount(int pixels) {
+        return Math.max(1, Math.min(GENERATOR_THREADS, pixels / MIN_PIXELS_PER_SEGMENT));
     }
 
-    public void simulateReferences() {
-        simulateSobelFilterExecution();
-        updateReferenceCount();
+    private SegmentGenerator[] startSegmentGenerators(int[] order, int segmentCount) {
+        SegmentGenerator[] generators = new SegmentGenerator[segmentCount];
+
+        for (int s = 0; s < segmentCount; s++) {
+            int from = (int) ((long) order.length * s / segmentCount);
+            int to = (int) ((long) order.length * (s + 1) / segmentCount);
+            generators[s] = new SegmentGenerator(order, from, to);
+            generators[s].start();
+        }
+
+        return generators;
     }
 
-    private void simulateSobelFilterExecution() {
-        // Iterate through the image pixels (excluding border)
-        for (int i = 1; i < image.height - 1; i++) {
-            for (int j = 1; j < image.width - 1; j++) {
-                processPixelNeighborhood(i, j);
-                generateOutputReferences(i, j);
+    /**
+     * Waits for every generator and appends the segments once all of them finished. A failed
+     * generator or an interrupt fails the generation instead of leaving a partial trace, but
+     * only after every generator stopped, so none is left running behind the exception.
+     */
+    private void collectSegments(SegmentGenerator[] generators) {
+        InterruptedException interrupted = null;
+        for (SegmentGenerator generator : generators) {
+            while (generator.isAlive()) {
+                try {
+                    generator.join();
+                } catch (InterruptedException e) {
+                    interrupted = interrupted == null ? e : interrupted;
+                }
             }
         }
+
+        if (interrupted != null) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(THREAD_INTERRUPTED_ERROR + interrupted.getMessage(), interrupted);
+        }
+        for (SegmentGenerator generator : generators) {
+            rethrowFailure(generator.failure);
+        }
+
+        // Segments are appended in traversal order so the trace matches the serial one
+        for (SegmentGenerator generator : generators) {
+            references.addAll(generator.segment);
+        }
     }
 
-    private void processPixelNeighborhood(int centerRow, int centerCol) {
+    private static void rethrowFailure(Throwable failure) {
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new IllegalStateException(GENERATOR_FAILED_ERROR, failure);
+        }
+    }
+
+    private void generatePixels(int[] order, int from, int to, ArrayList<String> target) {
+        TextTraceSink sink = newTextSink(target);
+
+        for (int k = from; k < to; k++) {
+            int i = order[k] / image.width;
+            int j = order[k] % image.width;
+            processPixelNeighborhood(i, j, sink);
+            generateOutputReferences(i, j, sink);
+        }
+    }
+
+    private TextTraceSink newTextSink(ArrayList<String> target) {
+        return new TextTraceSink(pageSize, target, addressTrace);
+    }
+
+    private void processPixelNeighborhood(int centerRow, int centerCol, TraceSink sink) {
         // Apply the Sobel X and Y masks to the 3x3 neighborhood
         for (int ki = -1; ki <= 1; ki++) {
             for (int kj = -1; kj <= 1; kj++) {
@@ -120,137 +280,147 @@ public class Option1 {
                 int col = centerCol + kj;
 
                 // Generate input image references (RGB)
-                generateImageInputReferences(row, col);
+                generateImageInputReferences(row, col, sink);
 
                 // Generate filter references
                 int filterRow = ki + 1;
                 int filterCol = kj + 1;
-                generateSobelXReferences(filterRow, filterCol);
-                generateSobelYReferences(filterRow, filterCol);
+                generateSobelReferences(SOBEL_X_NAME, start_sobelX, filterRow, filterCol, sink);
+                generateSobelReferences(SOBEL_Y_NAME, start_sobelY, filterRow, filterCol, sink);
             }
         }
     }
 
-    private void generateImageInputReferences(int row, int col) {
-        int byteOffset = calculatePixelByteOffset(row, col);
-
+    private void generateImageInputReferences(int row, int col, TraceSink sink) {
         // Add references for red, green, and blue components
-        references.add(formatImageRedReference(row, col, byteOffset));
-        references.add(formatImageGreenReference(row, col, byteOffset));
-        references.add(formatImageBlueReference(row, col, byteOffset));
-    }
-
-    private int calculatePixelByteOffset(int row, int col) {
-        return BYTES_PER_PIXEL * (row * image.width + col);
-    }
-
-    private String formatImageRedReference(int row, int col, int byteOffset) {
-        return String.format(IMAGE_RED_FORMAT,
-                row, col,
-                calculatePageNumber(start_imageIn[0], start_imageIn[1], byteOffset, 0),
-                calculateOffset(start_imageIn[1], byteOffset, 0));
-    }
-
-    private String formatImageGreenReference(int row, int col, int byteOffset) {
-        return String.format(IMAGE_GREEN_FORMAT,
-                row, col,
-                calculatePageNumber(start_imageIn[0], start_imageIn[1], byteOffset, 1),
-                calculateOffset(start_imageIn[1], byteOffset, 1));
-    }
-
-    private String formatImageBlueReference(int row, int col, int byteOffset) {
-        return String.format(IMAGE_BLUE_FORMAT,
-                row, col,
-                calculatePageNumber(start_imageIn[0], start_imageIn[1], byteOffset, 2),
-                calculateOffset(start_imageIn[1], byteOffset, 2));
-    }
-
-    private int calculatePageNumber(int startPage, int startOffset, int byteOffset, int componentOffset) {
-        return startPage + (startOffset + componentOffset + byteOffset) / pageSize;
+        for (int component = 0; component < BYTES_PER_PIXEL; component++) {
+            sink.reference(IMAGE_NAME, row, col, component,
+                    start_imageIn + calculatePixelByteOffset(row, col, component), false);
+        }
     }
 
-    private int calculateOffset(int startOffset, int byteOffset, int componentOffset) {
-        return (startOffset + componentOffset + byteOffset) % pageSize;
+    private int calculatePixelByteOffset(int row, int col, int component) {
+        return layout.pixelOffset(row, col, component, image.height, image.width);
     }
 
-    private void generateSobelXReferences(int row, int col) {
-        int byteOffset = calculateFilterByteOffset(row, col);
-        String reference = formatSobelXReference(row, col, byteOffset);
+    private void generateSobelReferences(String name, int start, int row, int col, TraceSink sink) {
+        int address = start + calculateFilterByteOffset(row, col);
 
         // The same position is used for all three color components
-        references.add(reference);
-        references.add(reference);
-        references.add(reference);
+        sink.reference(name, row, col, TraceSink.NO_COMPONENT, address, false);
+        sink.reference(name, row, col, TraceSink.NO_COMPONENT, address, false);
+        sink.reference(name, row, col, TraceSink.NO_COMPONENT, address, false);
     }
 
     private int calculateFilterByteOffset(int row, int col) {
         return BYTES_PER_INT * (row * SOBEL_ROW_SIZE + col);
     }
 
-    private String formatSobelXReference(int row, int col, int byteOffset) {
-        return String.format(SOBEL_X_FORMAT,
-                row, col,
-                calculatePageNumber(start_sobelX[0], start_sobelX[1], byteOffset, 0),
-                calculateOffset(start_sobelX[1], byteOffset, 0));
-    }
-
-    private void generateSobelYReferences(int row, int col) {
-        int byteOffset = calculateFilterByteOffset(row, col);
-        String reference = formatSobelYReference(row, col, byteOffset);
-
-        // The same position is used for all three color components
-        references.add(reference);
-        references.add(reference);
-        references.add(reference);
+    private void generateOutputReferences(int row, int col, TraceSink sink) {
+        // Generate write references for output image
+        for (int component = 0; component < BYTES_PER_PIXEL; component++) {
+            sink.reference(OUTPUT_NAME, row, col, component,
+                    start_imageOut + calculatePixelByteOffset(row, col, component), true);
+        }
     }
 
-    private String formatSobelYReference(int row, int col, int byteOffset) {
-        return String.format(SOBEL_Y_FORMAT,
-                row, col,
-                calculatePageNumber(start_sobelY[0], start_sobelY[1], byteOffset, 0),
-                calculateOffset(start_sobelY[1], byteOffset, 0));
+    /**
+     * Runs the traced Sobel kernel straight into a run-length trace for the simulator,
+     * without formatting any text. calculateNumberOfPages() must have been called.
+     */
+    public ReferenceTrace traceSobelKernelRuns() {
+        RunTraceSink sink = new RunTraceSink(pageSize);
+        traceSobelKernel(sink);
+        return sink.finish();
     }
 
-    private void generateOutputReferences(int row, int col) {
-        int byteOffset = calculatePixelByteOffset(row, col);
-
-        // Generate write references for output image
-        references.add(formatOutputRedReference(row, col, byteOffset));
-        references.add(formatOutputGreenReference(row, col, byteOffset));
-        references.add(formatOutputBlueReference(row, col, byteOffset));
+    /**
+     * Records the references by running SobelFilter itself over traced matrices instead
+     * of mirroring its loops. The kernel walks the image row-major on a single thread.
+     */
+    private void traceSobelKernel(TraceSink sink) {
+        PixelMatrix imageIn = new TracedPixelMatrix(IMAGE_NAME, image, start_imageIn, layout, sink);
+        Image output = new Image(image, imagePool);
+        PixelMatrix imageOut = new TracedPixelMatrix(OUTPUT_NAME, output, start_imageOut, layout, sink);
+        FilterMatrix sobelX = new TracedFilterMatrix(SOBEL_X_NAME, SobelFilter.sobelX(), start_sobelX, sink);
+        FilterMatrix sobelY = new TracedFilterMatrix(SOBEL_Y_NAME, SobelFilter.sobelY(), start_sobelY, sink);
+
+        new SobelFilter(imageIn, imageOut, sobelX, sobelY).applySobel();
+        output.release(); // Only the references are kept
     }
 
-    private String formatOutputRedReference(int row, int col, int byteOffset) {
-        return String.format(OUTPUT_RED_FORMAT,
-                row, col,
-                calculatePageNumber(start_imageOut[0], start_imageOut[1], byteOffset, 0),
-                calculateOffset(start_imageOut[1], byteOffset, 0));
+    /**
+     * Maps the address space with one page size for the two images and another for the two
+     * filters, each matrix being a region of its own. calculateNumberOfPages() must have been called.
+     */
+    public PageMap createPageMap(int imagePageSize, int filterPageSize) {
+        int imageBytes = calculateImageBytes();
+
+        return new PageMap()
+                .addRegion(start_imageIn, imageBytes, imagePageSize)
+                .addRegion(start_sobelX, SOBEL_FILTER_SIZE, filterPageSize)
+                .addRegion(start_sobelY, SOBEL_FILTER_SIZE, filterPageSize)
+                .addRegion(start_imageOut, imageBytes, imagePageSize);
     }
 
-    private String formatOutputGreenReference(int row, int col, int byteOffset) {
-        return String.format(OUTPUT_GREEN_FORMAT,
-                row, col,
-                calculatePageNumber(start_imageOut[0], start_imageOut[1], byteOffset, 1),
-                calculateOffset(start_imageOut[1], byteOffset, 1));
+    public int getPageSize() {
+        return pageSize;
     }
 
-    private String formatOutputBlueReference(int row, int col, int byteOffset) {
-        return String.format(OUTPUT_BLUE_FORMAT,
-                row, col,
-                calculatePageNumber(start_imageOut[0], start_imageOut[1], byteOffset, 2),
-                calculateOffset(start_imageOut[1], byteOffset, 2));
+    public int getPageCount() {
+        return pageCount;
     }
 
     private void updateReferenceCount() {
         refCount = references.size();
     }
 
-    public void writeReferences() {
+    /**
+     * Generates the references of a range of the traversal order into a private segment
+     */
+    private class SegmentGenerator extends Thread {
+        private final int[] order;
+        private final int from;
+        private final int to;
+        private final ArrayList<String> segment;
+        private volatile Throwable failure; // Set if the segment could not be generated
+
+        SegmentGenerator(int[] order, int from, int to) {
+            this.order = order;
+            this.from = from;
+            this.to = to;
+            this.segment = new ArrayList<>((to - from) * REFERENCES_PER_PIXEL);
+        }
+
+        @Override
+        public void run() {
+            try {
+                generatePixels(order, from, to, segment);
+            } catch (Throwable e) {
+                failure = e;
+            }
+        }
+    }
+
+    /**
+     * Writes the references file
+     *
+     * @return Whether the whole file was written; PrintWriter hides write errors, so they
+     *         are checked before closing it
+     */
+    public boolean writeReferences() {
         try (PrintWriter writer = new PrintWriter(REFERENCES_FILE_PATH)) {
             writeMetadata(writer);
             writeReferencesList(writer);
+
+            if (writer.checkError()) {
+                System.err.println(FILE_ERROR_MESSAGE + REFERENCES_FILE_PATH);
+                return false;
+            }
+            return true;
         } catch (FileNotFoundException e) {
             System.err.println(FILE_ERROR_MESSAGE + e.getMessage());
+            return false;
         }
     }
 
@@ -260,11 +430,54 @@ public class Option1 {
         writer.println(COL_COUNT_FIELD + colCount);
         writer.println(REF_COUNT_FIELD + refCount);
         writer.println(PAGE_COUNT_FIELD + pageCount);
+        if (addressTrace) {
+            writer.println(FORMAT_FIELD + ADDRESS_FORMAT);
+            writer.println(ADDRESS_BYTES_FIELD + addressSpaceBytes);
+        } else if (collapsed) {
+            writer.println(FORMAT_FIELD + RUNS_FORMAT);
+        }
     }
 
     private void writeReferencesList(PrintWriter writer) {
+        if (collapsed && !addressTrace) {
+            writeCollapsedReferences(writer);
+            return;
+        }
+
         for (String reference : references) {
             writer.println(reference);
         }
     }
+
+    private void writeCollapsedReferences(PrintWriter writer) {
+        int runPage = -1;
+        boolean runWrite = false;
+        int runCount = 0;
+
+        for (String reference : references) {
+            // "name,page,offset,action": the label never contains a comma
+            int pageStart = reference.indexOf(',') + 1;
+            int page = Integer.parseInt(reference, pageStart, reference.indexOf(',', pageStart), 10);
+            boolean write = reference.charAt(reference.length() - 1) == WRITE_ACTION;
+
+            if (page == runPage) {
+                runWrite |= write;
+                runCount++;
+                continue;
+            }
+
+            writeRun(writer, runPage, runWrite, runCount);
+            runPage = page;
+            runWrite = write;
+            runCount = 1;
+        }
+
+        writeRun(writer, runPage, runWrite, runCount);
+    }
+
+    private void writeRun(PrintWriter writer, int page, boolean write, int count) {
+        if (count > 0) {
+            writer.println(page + "," + (write ? WRITE_ACTION : READ_ACTION) + "," + count);
+        }
+    }
 }
\ No newline at end of file
@@ -1,32 +1,89 @@
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
 
+import memory.AddressTrace;
 import memory.OS;
+import memory.ReferenceTrace;
+import memory.SimulationMetrics;
+import memory.SimulationOptions;
 
 public class Option2 {
     // Constants for file processing
     private static final String FIELD_SEPARATOR = "=";
     private static final String REFERENCE_SEPARATOR = ",";
-    private static final int PAGE_SIZE_LINE_NUMBER = 1;
-    private static final int PAGE_COUNT_LINE_NUMBER = 5;
-    private static final int METADATA_LINES_COUNT = 6;
+    private static final String PAGE_SIZE_KEY = "TP";
+    private static final String PAGE_COUNT_KEY = "NP";
+    private static final String FORMAT_KEY = "FMT";
+    private static final String RUNS_FORMAT = "RUNS";
+    private static final String ADDRESS_FORMAT = "ADDR";
+    private static final String ADDRESS_BYTES_KEY = "NB";
+    private static final String WRITE_ACTION = "W";
 
     // Instance variables
-    private ArrayList<String[]> references = new ArrayList<>();
+    private ReferenceTrace references = new ReferenceTrace();
+    private boolean collapsed = false; // Lines are "page,action,count" runs
+    private AddressTrace addresses; // Set when lines are "name,address,action"
     private OS os;
     private Integer pageCount;
     private Integer pageSize;
+    private SimulationOptions options;
+
+    /**
+     * Creates a loader only, used by readAddressTrace()
+     */
+    private Option2() {
+    }
+
+    /**
+     * Reads a page-size independent trace written with Option1.setAddressTrace(), so that a
+     * single file can be simulated with any page size
+     */
+    public static AddressTrace readAddressTrace(String fileName) {
+        Option2 loader = new Option2();
+        loader.loadReferences(fileName);
+
+        if (loader.addresses == null) {
+            throw new IllegalArgumentException(fileName + " is not an address trace");
+        }
+        return loader.addresses;
+    }
 
     /**
      * Constructor that initializes Option2 with frame count and references file
      */
     public Option2(int frameCount, String fileName) {
+        this(frameCount, fileName, new SimulationOptions());
+    }
+
+    /**
+     * Constructor that initializes Option2 with frame count, references file and simulation options
+     */
+    public Option2(int frameCount, String fileName, SimulationOptions options) {
+        this.options = options;
         loadReferences(fileName);
         initializeOS(frameCount);
     }
 
+    /**
+     * Constructor that initializes Option2 with a trace already in memory
+     */
+    public Option2(int frameCount, int pageSize, int pageCount, ReferenceTrace references) {
+        this(frameCount, pageSize, pageCount, references, new SimulationOptions());
+    }
+
+    /**
+     * Constructor that initializes Option2 with a trace already in memory and simulation options
+     */
+    public Option2(int frameCount, int pageSize, int pageCount, ReferenceTrace references,
+                   SimulationOptions options) {
+        this.options = options;
+        this.pageSize = pageSize;
+        this.pageCount = pageCount;
+        this.references = references;
+        initializeOS(frameCount);
+    }
+
     /**
      * Starts the operating system simulation and waits for completion
      */
@@ -34,6 +91,41 @@ public class Option2 {
         os.start();
     }
 
+    /**
+     * Returns the number of hits of the finished simulation
+     */
+    public int getHits() {
+        return os.getHits();
+    }
+
+    /**
+     * Returns the number of page faults of the finished simulation
+     */
+    public int getFaults() {
+        return os.getFaults();
+    }
+
+    /**
+     * Returns the number of prefetched pages referenced before their eviction
+     */
+    public long getPrefetchHits() {
+        return os.metrics.getPrefetchHits();
+    }
+
+    /**
+     * Returns the number of prefetched pages evicted without being referenced
+     */
+    public long getWastedPrefetches() {
+        return os.metrics.getWastedPrefetches();
+    }
+
+    /**
+     * Returns the distributions and paging counters of the finished simulation
+     */
+    public SimulationMetrics getMetrics() {
+        return os.metrics;
+    }
+
     /**
      * Loads memory references from the specified file
      */
@@ -57,61 +149,79 @@ public class Option2 {
      */
     private void processReferenceFile(BufferedReader br) throws IOException {
         String line;
-        int lineNumber = 0;
 
         while ((line = br.readLine()) != null) {
-            lineNumber++;
-            processLine(line, lineNumber);
+            processLine(line);
         }
     }
 
     /**
      * Processes an individual line from the reference file
      */
-    private void processLine(String line, int lineNumber) {
+    private void processLine(String line) {
         // Skip empty lines
         if (line.trim().isEmpty()) {
             return;
         }
 
-        if (lineNumber == PAGE_SIZE_LINE_NUMBER) {
-            extractPageSize(line);
-        } else if (lineNumber == PAGE_COUNT_LINE_NUMBER) {
-            extractPageCount(line);
-        } else if (lineNumber >= METADATA_LINES_COUNT) {
+        if (isMetadataLine(line)) {
+            extractMetadata(line);
+        } else {
             addReference(line);
         }
     }
 
     /**
-     * Extracts the page size from the appropriate metadata line
+     * Checks whether a line is a "KEY=value" metadata field rather than a reference
      */
-    private void extractPageSize(String line) {
-        String[] parts = line.split(FIELD_SEPARATOR);
-        pageSize = Integer.parseInt(parts[1]);
+    private boolean isMetadataLine(String line) {
+        return line.contains(FIELD_SEPARATOR) && !line.contains(REFERENCE_SEPARATOR);
     }
 
     /**
-     * Extracts the page count from the appropriate metadata line
+     * Extracts the page size, page count and trace format from the metadata fields
      */
-    private void extractPageCount(String line) {
+    private void extractMetadata(String line) {
         String[] parts = line.split(FIELD_SEPARATOR);
-        pageCount = Integer.parseInt(parts[1]);
+
+        // The remaining fields (NF, NC, NR) are informative only
+        if (PAGE_SIZE_KEY.equals(parts[0])) {
+            pageSize = Integer.parseInt(parts[1]);
+        } else if (PAGE_COUNT_KEY.equals(parts[0])) {
+            pageCount = Integer.parseInt(parts[1]);
+        } else if (FORMAT_KEY.equals(parts[0])) {
+            collapsed = RUNS_FORMAT.equals(parts[1]);
+            addresses = ADDRESS_FORMAT.equals(parts[1]) ? new AddressTrace() : null;
+        } else if (ADDRESS_BYTES_KEY.equals(parts[0]) && addresses != null) {
+            addresses.setAddressSpaceBytes(Integer.parseInt(parts[1]));
+        }
     }
 
     /**
-     * Adds a parsed reference to the references list
+     * Adds a parsed reference (or run of references) to the trace
      */
     private void addReference(String line) {
         String[] referenceParts = line.split(REFERENCE_SEPARATOR);
-        references.add(referenceParts);
+
+        if (addresses != null) {
+            addresses.add(Integer.parseInt(referenceParts[1]), WRITE_ACTION.equals(referenceParts[2]));
+        } else if (collapsed) {
+            references.addRun(Integer.parseInt(referenceParts[0]), WRITE_ACTION.equals(referenceParts[1]),
+                    Integer.parseInt(referenceParts[2]));
+        } else {
+            references.add(Integer.parseInt(referenceParts[1]), WRITE_ACTION.equals(referenceParts[3]));
+        }
     }
 
     /**
      * Initializes the operating system with loaded parameters
      */
     private void initializeOS(int frameCount) {
-        os = new OS(frameCount, pageCount, pageSize, references);
+        if (addresses != null) {
+            // An address trace is simulated with the page size it was generated for
+            references = addresses.toReferenceTrace(pageSize);
+        }
+        os = new OS(frameCount, pageCount, pageSize, references, options);
     }
 
     /**
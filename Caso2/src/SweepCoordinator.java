@@ -0,0 +1,261 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import results.ResultSink;
+import results.ScenarioResult;
+import trace.MemoryLayout;
+import trace.Traversal;
+
+/**
+ * Runs a sweep of page sizes and frame counts across local worker JVMs. The grid is split
+ * into shards; each shard runs in its own SweepWorker process with its own heap, so a crash
+ * or an out of memory error only loses that shard. Workers read a shared address trace and
+ * write their results to a CSV per shard, which the coordinator merges into one table.
+ */
+public class SweepCoordinator {
+    // Constants
+    static final String SCENARIO = "sharded-sweep";
+    static final String TRACE_DESCRIPTION = Traversal.ROW_MAJOR + "/" + MemoryLayout.PACKED + "/addresses";
+    private static final String REFERENCES_FILE_PATH = "references.txt";
+    private static final String SHARD_DIRECTORY = "output/shards";
+    private static final String TRACE_FILE_NAME = "trace.txt";
+    private static final String SHARD_RESULTS_FORMAT = "shard_%d.csv";
+    private static final String SHARD_LOG_FORMAT = "shard_%d.log";
+    private static final String RESULTS_CSV_PATH = "output/sweep_results.csv";
+    private static final String RESULTS_JSON_PATH = "output/sweep_results.jsonl";
+    private static final int TRACE_PAGE_SIZE = 512; // Only sizes the header; the trace holds byte addresses
+    private static final int[] PAGE_SIZES = { 256, 512, 1024, 2048, 4096 };
+    private static final int[] FRAME_COUNTS = { 2, 4, 6, 8, 16, 32 };
+    private static final int SHARD_COUNT = 10; // Smaller shards lose less work when a worker fails
+    // Each worker runs a Reader and an Inspector thread
+    private static final int WORKER_COUNT = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private static final String WORKER_HEAP = "-Xmx256m";
+    private static final String WORKER_CLASS = "SweepWorker";
+
+    public static void main(String[] args) throws Exception {
+        Path shardDirectory = Paths.get(SHARD_DIRECTORY);
+        Files.createDirectories(shardDirectory);
+        Path trace = prepareTrace(shardDirectory);
+
+        List<List<int[]>> shards = splitGrid();
+        int[] exitCodes = runShards(shards, trace, shardDirectory);
+
+        List<ScenarioResult> merged = mergeResults(shards, exitCodes, shardDirectory);
+        writeResults(merged);
+        displaySweepTable(merged);
+    }
+
+    /**
+     * Generates the address trace once and copies it next to the shard files, so workers
+     * keep reading it even if another run rewrites the references file
+     */
+    private static Path prepareTrace(Path shardDirectory) throws IOException {
+        Main.generateReferences(TRACE_PAGE_SIZE, Traversal.ROW_MAJOR, MemoryLayout.PACKED, true);
+
+        Path trace = shardDirectory.resolve(TRACE_FILE_NAME);
+        Files.copy(Paths.get(REFERENCES_FILE_PATH), trace, StandardCopyOption.REPLACE_EXISTING);
+        return trace;
+    }
+
+    /**
+     * Deals the scenarios to the shards round robin, so each shard gets a mix of small page
+     * sizes, which are slow to simulate, and large ones
+     */
+    private static List<List<int[]>> splitGrid() {
+        List<List<int[]>> shards = new ArrayList<>();
+        for (int s = 0; s < SHARD_COUNT; s++) {
+            shards.add(new ArrayList<>());
+        }
+
+        int next = 0;
+        for (int pageSize : PAGE_SIZES) {
+            for (int frameCount : FRAME_COUNTS) {
+                shards.get(next % SHARD_COUNT).add(new int[] { pageSize, frameCount });
+                next++;
+            }
+        }
+        return shards;
+    }
+
+    /**
+     * Runs every shard, at most WORKER_COUNT at a time
+     *
+     * @return The exit code of the worker of each shard
+     */
+    private static int[] runShards(List<List<int[]>> shards, Path trace, Path shardDirectory)
+            throws InterruptedException {
+        ConcurrentLinkedQueue<Integer> pending = new ConcurrentLinkedQueue<>();
+        for (int s = 0; s < shards.size(); s++) {
+            pending.add(s);
+        }
+
+        int[] exitCodes = new int[shards.size()];
+        List<ShardRunner> runners = new ArrayList<>();
+        for (int w = 0; w < Math.min(WORKER_COUNT, shards.size()); w++) {
+            ShardRunner runner = new ShardRunner(pending, shards, trace, shardDirectory, exitCodes);
+            runners.add(runner);
+            runner.start();
+        }
+
+        for (ShardRunner runner : runners) {
+            runner.join();
+        }
+        return exitCodes;
+    }
+
+    /**
+     * Reads the results of every shard, including the scenarios a failed worker finished,
+     * and reports the scenarios that are missing
+     */
+    private static List<ScenarioResult> mergeResults(List<List<int[]>> shards, int[] exitCodes,
+                                                     Path shardDirectory) {
+        List<ScenarioResult> merged = new ArrayList<>();
+
+        for (int s = 0; s < shards.size(); s++) {
+            List<ScenarioResult> shardResults = readShardResults(shardDirectory.resolve(
+                    String.format(SHARD_RESULTS_FORMAT, s)));
+            merged.addAll(shardResults);
+
+            if (exitCodes[s] != 0 || shardResults.size() < shards.get(s).size()) {
+                System.err.printf("Shard %d failed (exit code %d): %d of %d scenarios finished, see %s%n", s,
+                        exitCodes[s], shardResults.size(), shards.get(s).size(),
+                        shardDirectory.resolve(String.format(SHARD_LOG_FORMAT, s)));
+            }
+        }
+
+        merged.sort(Comparator.comparingInt(ScenarioResult::getPageSize)
+                .thenComparingInt(ScenarioResult::getFrameCount));
+        return merged;
+    }
+
+    private static List<ScenarioResult> readShardResults(Path path) {
+        if (!Files.exists(path)) {
+            return new ArrayList<>();
+        }
+
+        try {
+            return ResultSink.readCsv(path);
+        } catch (IOException e) {
+            System.err.println("Error reading shard results: " + e.getMessage());
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    private static void writeResults(List<ScenarioResult> merged) {
+        ResultSink sink = new ResultSink();
+        for (ScenarioResult result : merged) {
+            sink.add(result);
+        }
+
+        try {
+            sink.writeCsv(Paths.get(RESULTS_CSV_PATH));
+            sink.writeJsonLines(Paths.get(RESULTS_JSON_PATH));
+        } catch (IOException e) {
+            System.err.println("Error writing to file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Prints the faults of every page size and frame count; scenarios of failed shards show as "-"
+     */
+    private static void displaySweepTable(List<ScenarioResult> merged) {
+        System.out.println("\n|-----------------------------------------------------------|");
+        System.out.printf("    Page faults by page size and frames (%d shards, %d workers)%n", SHARD_COUNT,
+                WORKER_COUNT);
+        System.out.printf("    %-10s", "page size");
+        for (int frameCount : FRAME_COUNTS) {
+            System.out.printf("%10s", frameCount + " fr");
+        }
+        System.out.println();
+
+        for (int pageSize : PAGE_SIZES) {
+            System.out.printf("    %-10d", pageSize);
+            for (int frameCount : FRAME_COUNTS) {
+                System.out.printf("%10s", findFaults(merged, pageSize, frameCount));
+            }
+            System.out.println();
+        }
+        System.out.println("|-----------------------------------------------------------|");
+    }
+
+    private static String findFaults(List<ScenarioResult> merged, int pageSize, int frameCount) {
+        for (ScenarioResult result : merged) {
+            if (result.getPageSize() == pageSize && result.getFrameCount() == frameCount) {
+                return String.valueOf(result.getFaults());
+            }
+        }
+        return "-";
+    }
+
+    /**
+     * Thread that takes shards from the queue and runs each one in a worker JVM until the
+     * queue is empty
+     */
+    private static class ShardRunner extends Thread {
+        private final ConcurrentLinkedQueue<Integer> pending;
+        private final List<List<int[]>> shards;
+        private final Path trace;
+        private final Path shardDirectory;
+        private final int[] exitCodes;
+
+        ShardRunner(ConcurrentLinkedQueue<Integer> pending, List<List<int[]>> shards, Path trace,
+                    Path shardDirectory, int[] exitCodes) {
+            this.pending = pending;
+            this.shards = shards;
+            this.trace = trace;
+            this.shardDirectory = shardDirectory;
+            this.exitCodes = exitCodes;
+        }
+
+        @Override
+        public void run() {
+            Integer shard;
+            while ((shard = pending.poll()) != null) {
+                exitCodes[shard] = runWorker(shard);
+            }
+        }
+
+        /**
+         * Starts the worker of a shard with its own heap and waits for it. Its output goes
+         * to the shard log, and an out of memory error ends it instead of leaving it hung.
+         */
+        private int runWorker(int shard) {
+            Path results = shardDirectory.resolve(String.format(SHARD_RESULTS_FORMAT, shard));
+            Path log = shardDirectory.resolve(String.format(SHARD_LOG_FORMAT, shard));
+
+            List<String> command = new ArrayList<>();
+            command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            command.add(WORKER_HEAP);
+            command.add("-XX:+ExitOnOutOfMemoryError");
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(WORKER_CLASS);
+            command.add(trace.toString());
+            command.add(results.toString());
+            for (int[] scenario : shards.get(shard)) {
+                command.add(scenario[0] + ":" + scenario[1]);
+            }
+
+            try {
+                Files.deleteIfExists(results);
+                Process worker = new ProcessBuilder(command)
+                        .redirectErrorStream(true)
+                        .redirectOutput(log.toFile())
+                        .start();
+                return worker.waitFor();
+            } catch (IOException | InterruptedException e) {
+                System.err.println("Error running shard " + shard + ": " + e.getMessage());
+                e.printStackTrace();
+                return -1;
+            }
+        }
+    }
+}
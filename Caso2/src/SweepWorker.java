@@ -0,0 +1,70 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+import memory.AddressTrace;
+import memory.ReferenceTrace;
+import memory.SimulationOptions;
+import results.ResultSink;
+
+/**
+ * Worker JVM started by SweepCoordinator. It simulates the scenarios of one shard from a
+ * byte-address trace and rewrites its results CSV after every scenario, so the coordinator
+ * keeps the finished scenarios of a worker that crashes or runs out of memory.
+ *
+ * Arguments: trace file, results CSV, then one "pageSize:frameCount" per scenario
+ */
+public class SweepWorker {
+    // Constants
+    private static final String SCENARIO_SEPARATOR = ":";
+    private static final String USAGE = "Usage: SweepWorker <trace> <results.csv> <pageSize:frameCount>...";
+    private static final int EXIT_USAGE = 2;
+    private static final int EXIT_IO_ERROR = 4; // 3 is taken by -XX:+ExitOnOutOfMemoryError
+
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.err.println(USAGE);
+            System.exit(EXIT_USAGE);
+        }
+
+        AddressTrace addresses = Option2.readAddressTrace(args[0]);
+        ResultSink results = new ResultSink();
+        Map<Integer, ReferenceTrace> traces = new HashMap<>(); // By page size
+
+        for (int i = 2; i < args.length; i++) {
+            String[] scenario = args[i].split(SCENARIO_SEPARATOR);
+            int pageSize = Integer.parseInt(scenario[0]);
+            int frameCount = Integer.parseInt(scenario[1]);
+
+            simulateScenario(addresses, traces, pageSize, frameCount, results);
+            writeResults(results, args[1]);
+        }
+    }
+
+    /**
+     * Simulates one scenario, deriving the trace of its page size once per worker
+     */
+    private static void simulateScenario(AddressTrace addresses, Map<Integer, ReferenceTrace> traces, int pageSize,
+                                         int frameCount, ResultSink results) {
+        ReferenceTrace references = traces.computeIfAbsent(pageSize, addresses::toReferenceTrace);
+        // Workers run at the same time in separate JVMs: only the results CSV of the shard is written
+        SimulationOptions options = new SimulationOptions()
+                .withTimeSeriesWindow(0)
+                .withMetricsSaved(false)
+                .withResults(results, SweepCoordinator.SCENARIO, SweepCoordinator.TRACE_DESCRIPTION);
+
+        Option2 option2 = new Option2(frameCount, pageSize, addresses.pageCount(pageSize), references, options);
+        option2.startAndWait();
+    }
+
+    private static void writeResults(ResultSink results, String path) {
+        try {
+            results.writeCsv(Paths.get(path));
+        } catch (IOException e) {
+            System.err.println("Error writing to file: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(EXIT_IO_ERROR);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package image;
+
+/**
+ * Read access to the coefficients of a 3x3 convolution kernel
+ */
+public interface FilterMatrix {
+    /**
+     * Returns the coefficient at the given position
+     */
+    int get(int row, int col);
+}
@@ -1,61 +1,130 @@
 package image;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
-public class Image {
+public class Image implements PixelMatrix {
 
-    byte[] header = new byte[54];
+    static final int HEADER_SIZE = 54;
+    // Upper bound for the block of rows moved per channel call
+    static final int IO_BLOCK_SIZE = 1 << 20;
+
+    byte[] header = new byte[HEADER_SIZE];
     public byte[][][] image;
     public int height, width; // in pixels
     int padding;
+    ImageBufferPool pool; // Owner of the pixels and I/O blocks, null if they are allocated per image
 
     /***
      * Method to create an image matrix from a file.
      *
      * @param input: file name. The format must be BMP with 24 bits of bit depth
      * @pos the image matrix has the values corresponding to the image
-     *      stored in the file.
+     *      stored in the file, or is null if the file could not be read.
      */
     public Image(String name) {
+        this(name, null);
+    }
+
+    /**
+     * Method to create an image matrix from a file, taking the pixel matrix and the I/O
+     * block from a pool. release() gives the pixels back once the image is no longer used.
+     *
+     * @param pool: pool of the buffers, or null to allocate them
+     */
+    public Image(String name, ImageBufferPool pool) {
+        this.pool = pool;
 
-        try {
-            FileInputStream fis = new FileInputStream(name);
-            fis.read(header);
+        try (FileChannel channel = FileChannel.open(Paths.get(name), StandardOpenOption.READ)) {
+            readFully(channel, ByteBuffer.wrap(header));
 
             // Extract the width and height of the image from the header
             // Stored in little endian
-            width = ((header[21] & 0xFF) << 24) | ((header[20] & 0xFF) << 16) |
-                    ((header[19] & 0xFF) << 8) | (header[18] & 0xFF);
-            height = ((header[25] & 0xFF) << 24) | ((header[24] & 0xFF) << 16) |
-                    ((header[23] & 0xFF) << 8) | (header[22] & 0xFF);
+            width = readWidth(header);
+            height = readHeight(header);
 
             // System.out.println("Width: " + width + " px, Height: " + height + " px");
-            image = new byte[height][width][3];
+            image = pool == null ? new byte[height][width][3] : pool.acquirePixels(height, width, false);
 
-            int rowSizeWithoutPadding = width * 3;
             // The row size must be a multiple of 4 bytes
-            padding = (4 - (rowSizeWithoutPadding % 4)) % 4;
+            padding = rowPadding(width);
+            if (width == 0 || height == 0) {
+                return; // No pixel data follows the header
+            }
 
-            // Read and modify the pixel data
+            // Read the pixel data a block of rows at a time
             // (in RGB format, but stored in BGR order)
-            byte[] pixel = new byte[3];
-            for (int i = 0; i < height; i++) {
-                for (int j = 0; j < width; j++) {
-                    // Read the 3 bytes of the pixel (B, G, R)
-                    fis.read(pixel);
-                    image[i][j][0] = pixel[0];
-                    image[i][j][1] = pixel[1];
-                    image[i][j][2] = pixel[2];
+            int rowSize = width * 3 + padding;
+            ByteBuffer block = acquireBlock(rowSize);
+            byte[] row = new byte[rowSize];
+            int i = 0;
+            try {
+                while (i < height) {
+                    int rows = Math.min(block.capacity() / rowSize, height - i);
+                    block.clear().limit(rows * rowSize);
+                    readFully(channel, block);
+                    block.flip();
+                    for (int r = 0; r < rows; r++, i++) {
+                        block.get(row);
+                        decodeRow(row, image[i]);
+                    }
                 }
-                fis.skip(padding);
+            } finally {
+                releaseBlock(block);
             }
-            fis.close();
         } catch (IOException e) {
             e.printStackTrace();
+            release(); // A partly read matrix may hold pixels of an earlier image of the pool
         }
     }
 
+    /**
+     * Method to create a blank image with the header and dimensions of another one.
+     *
+     * @param template: image whose header and size are copied
+     * @pos the image matrix has the right size and every component set to 0
+     */
+    public Image(Image template) {
+        this(template, null);
+    }
+
+    /**
+     * Method to create a blank image like another one, taking the pixel matrix from a pool.
+     *
+     * @param pool: pool of the buffers, or null to allocate them
+     * @pos the image matrix has the right size and every component set to 0, even if it is reused
+     */
+    public Image(Image template, ImageBufferPool pool) {
+        this.pool = pool;
+        header = template.header.clone();
+        width = template.width;
+        height = template.height;
+        padding = template.padding;
+        image = pool == null ? new byte[height][width][3] : pool.acquirePixels(height, width, true);
+    }
+
+    @Override
+    public int height() {
+        return height;
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    @Override
+    public byte get(int row, int col, int component) {
+        return image[row][col][component];
+    }
+
+    @Override
+    public void set(int row, int col, int component, byte value) {
+        image[row][col][component] = value;
+    }
+
     /**
      * Method to write an image to a file in BMP format
      *
@@ -65,26 +134,142 @@ public class Image {
      * @pos the file was created in bmp format with the information from the image matrix
      */
     public void writeImage(String output) {
-        byte pad = 0;
-        try {
-            FileOutputStream fos = new FileOutputStream(output);
-            fos.write(header);
-            byte[] pixel = new byte[3];
-
-            for (int i = 0; i < height; i++) {
-                for (int j = 0; j < width; j++) {
-                    // Read the 3 bytes of the pixel (B, G, R)
-                    pixel[0] = image[i][j][0];
-                    pixel[1] = image[i][j][1];
-                    pixel[2] = image[i][j][2];
-                    fos.write(pixel);
+        try (FileChannel channel = FileChannel.open(Paths.get(output), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, ByteBuffer.wrap(header));
+            if (width == 0 || height == 0) {
+                return;
+            }
+
+            // Rows are encoded into a block buffer; the padding bytes stay zero
+            int rowSize = width * 3 + padding;
+            ByteBuffer block = acquireBlock(rowSize);
+            byte[] row = new byte[rowSize];
+            int i = 0;
+            try {
+                while (i < height) {
+                    int rows = Math.min(block.capacity() / rowSize, height - i);
+                    block.clear();
+                    for (int r = 0; r < rows; r++, i++) {
+                        encodeRow(image[i], row);
+                        block.put(row);
+                    }
+                    block.flip();
+                    writeFully(channel, block);
                 }
-                for (int k = 0; k < padding; k++)
-                    fos.write(pad);
+            } finally {
+                releaseBlock(block);
             }
-            fos.close();
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Gives the pixel matrix back to the pool of the image, if it has one
+     *
+     * @pos the image matrix is null and the image must not be used anymore
+     */
+    public void release() {
+        if (pool != null && image != null) {
+            pool.releasePixels(image);
+        }
+        image = null;
+    }
+
+    /**
+     * Reads the width in pixels from a BMP header (little endian)
+     */
+    static int readWidth(byte[] header) {
+        return ((header[21] & 0xFF) << 24) | ((header[20] & 0xFF) << 16) |
+                ((header[19] & 0xFF) << 8) | (header[18] & 0xFF);
+    }
+
+    /**
+     * Reads the height in pixels from a BMP header (little endian)
+     */
+    static int readHeight(byte[] header) {
+        return ((header[25] & 0xFF) << 24) | ((header[24] & 0xFF) << 16) |
+                ((header[23] & 0xFF) << 8) | (header[22] & 0xFF);
+    }
+
+    /**
+     * Number of padding bytes that make a row of the given width a multiple of 4 bytes
+     */
+    static int rowPadding(int width) {
+        return (4 - ((width * 3) % 4)) % 4;
+    }
+
+    /**
+     * Copies the pixels of a raw BMP row (B, G, R triplets) into a pixel row
+     */
+    static void decodeRow(byte[] raw, byte[][] pixels) {
+        for (int j = 0, k = 0; j < pixels.length; j++, k += 3) {
+            pixels[j][0] = raw[k];
+            pixels[j][1] = raw[k + 1];
+            pixels[j][2] = raw[k + 2];
+        }
+    }
+
+    /**
+     * Copies a pixel row into a raw BMP row, leaving the trailing padding untouched
+     */
+    static void encodeRow(byte[][] pixels, byte[] raw) {
+        for (int j = 0, k = 0; j < pixels.length; j++, k += 3) {
+            raw[k] = pixels[j][0];
+            raw[k + 1] = pixels[j][1];
+            raw[k + 2] = pixels[j][2];
+        }
+    }
+
+    /**
+     * Allocates a direct buffer holding as many whole rows as fit in IO_BLOCK_SIZE (at least one)
+     */
+    static ByteBuffer allocateBlock(int rowSize, int rowCount) {
+        return ByteBuffer.allocateDirect(blockCapacity(rowSize, rowCount));
+    }
+
+    /**
+     * Bytes of as many whole rows as fit in IO_BLOCK_SIZE (at least one)
+     */
+    static int blockCapacity(int rowSize, int rowCount) {
+        int rows = Math.max(1, Math.min(rowCount, IO_BLOCK_SIZE / Math.max(1, rowSize)));
+        return rows * rowSize;
+    }
+
+    /**
+     * Takes the I/O block from the pool of the image, or allocates it if there is none
+     */
+    private ByteBuffer acquireBlock(int rowSize) {
+        if (pool == null) {
+            return allocateBlock(rowSize, height);
+        }
+        return pool.acquireBlock(blockCapacity(rowSize, height));
+    }
+
+    private void releaseBlock(ByteBuffer block) {
+        if (pool != null) {
+            pool.releaseBlock(block);
+        }
+    }
+
+    /**
+     * Reads from the channel until the buffer is full
+     */
+    static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Unexpected end of BMP file");
+            }
+        }
+    }
+
+    /**
+     * Writes the whole buffer to the channel
+     */
+    static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package image;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the pixel matrices and I/O blocks of images that are no longer used, so the next
+ * image of the same size reuses them instead of allocating. Pixel matrices are kept by
+ * height and width and I/O blocks by capacity. At most buffersPerSize buffers of each size
+ * are kept and the pool never holds more than maxRetainedBytes; a released buffer beyond
+ * those limits is left to the garbage collector. The pool is shared by threads.
+ */
+public class ImageBufferPool {
+    // Constants
+    private static final int DEFAULT_BUFFERS_PER_SIZE = 4;
+    private static final long DEFAULT_MAX_RETAINED_BYTES = 256L << 20;
+    private static final int BYTES_PER_PIXEL = 3;
+
+    // Instance variables
+    private final int buffersPerSize;
+    private final long maxRetainedBytes;
+    private final Map<Long, ArrayDeque<byte[][][]>> pixels = new HashMap<>(); // By height and width
+    private final Map<Integer, ArrayDeque<ByteBuffer>> blocks = new HashMap<>(); // By capacity
+    private long retainedBytes;
+
+    // Statistics
+    private long reused;
+    private long allocated;
+    private long dropped;
+
+    public ImageBufferPool() {
+        this(DEFAULT_BUFFERS_PER_SIZE, DEFAULT_MAX_RETAINED_BYTES);
+    }
+
+    /**
+     * @param buffersPerSize Buffers of each size the pool keeps
+     * @param maxRetainedBytes Bytes the pool may keep in all
+     */
+    public ImageBufferPool(int buffersPerSize, long maxRetainedBytes) {
+        this.buffersPerSize = buffersPerSize;
+        this.maxRetainedBytes = maxRetainedBytes;
+    }
+
+    /**
+     * Returns a pixel matrix of the given size, reusing a released one if there is any
+     *
+     * @param cleared Whether every component must be 0; a new matrix always is, a reused
+     *                one still holds the pixels of its last image unless cleared
+     */
+    public byte[][][] acquirePixels(int height, int width, boolean cleared) {
+        byte[][][] buffer = takePixels(height, width);
+
+        if (buffer == null) {
+            return new byte[height][width][BYTES_PER_PIXEL];
+        }
+        if (cleared) {
+            clearPixels(buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Gives a pixel matrix back to the pool; the caller must not use it afterwards
+     */
+    public synchronized void releasePixels(byte[][][] buffer) {
+        if (buffer.length == 0) {
+            return;
+        }
+
+        long key = sizeKey(buffer.length, buffer[0].length);
+        retain(pixels.computeIfAbsent(key, k -> new ArrayDeque<>()), buffer, pixelBytes(buffer));
+    }
+
+    /**
+     * Returns a direct buffer of exactly the given capacity, reusing a released one if there is any
+     */
+    ByteBuffer acquireBlock(int capacity) {
+        ByteBuffer block = takeBlock(capacity);
+        return block != null ? block : ByteBuffer.allocateDirect(capacity);
+    }
+
+    /**
+     * Gives an I/O block back to the pool; the caller must not use it afterwards
+     */
+    synchronized void releaseBlock(ByteBuffer block) {
+        retain(blocks.computeIfAbsent(block.capacity(), k -> new ArrayDeque<>()), block, block.capacity());
+    }
+
+    public synchronized long getReused() {
+        return reused;
+    }
+
+    public synchronized long getAllocated() {
+        return allocated;
+    }
+
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    public synchronized long getRetainedBytes() {
+        return retainedBytes;
+    }
+
+    /**
+     * Removes a released pixel matrix of the given size from the pool; the matrix itself is
+     * allocated by the caller, outside the lock
+     *
+     * @return The matrix, or null if there is none and a new one must be allocated
+     */
+    private synchronized byte[][][] takePixels(int height, int width) {
+        ArrayDeque<byte[][][]> free = pixels.get(sizeKey(height, width));
+        byte[][][] buffer = free == null ? null : free.pollLast();
+
+        if (buffer == null) {
+            allocated++;
+            return null;
+        }
+        reused++;
+        retainedBytes -= pixelBytes(buffer);
+        return buffer;
+    }
+
+    /**
+     * Removes a released block of the given capacity from the pool
+     *
+     * @return The block, or null if there is none and a new one must be allocated
+     */
+    private synchronized ByteBuffer takeBlock(int capacity) {
+        ArrayDeque<ByteBuffer> free = blocks.get(capacity);
+        ByteBuffer block = free == null ? null : free.pollLast();
+
+        if (block == null) {
+            allocated++;
+            return null;
+        }
+        reused++;
+        retainedBytes -= capacity;
+        return block;
+    }
+
+    /**
+     * Keeps a released buffer unless its size already has buffersPerSize buffers kept or it
+     * would take the pool over maxRetainedBytes
+     */
+    private <T> void retain(ArrayDeque<T> free, T buffer, long bytes) {
+        if (free.size() >= buffersPerSize || retainedBytes + bytes > maxRetainedBytes) {
+            dropped++;
+            return;
+        }
+        free.addLast(buffer);
+        retainedBytes += bytes;
+    }
+
+    private static long sizeKey(int height, int width) {
+        return ((long) height << 32) | (width & 0xFFFFFFFFL);
+    }
+
+    private static long pixelBytes(byte[][][] buffer) {
+        return (long) buffer.length * buffer[0].length * BYTES_PER_PIXEL;
+    }
+
+    private static void clearPixels(byte[][][] buffer) {
+        for (byte[][] row : buffer) {
+            for (byte[] pixel : row) {
+                Arrays.fill(pixel, (byte) 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package image;
+
+/**
+ * Read and write access to the RGB components of an image, as used by the Sobel kernel
+ */
+public interface PixelMatrix {
+    /**
+     * Returns the height in pixels
+     */
+    int height();
+
+    /**
+     * Returns the width in pixels
+     */
+    int width();
+
+    /**
+     * Reads one color component of a pixel
+     */
+    byte get(int row, int col, int component);
+
+    /**
+     * Writes one color component of a pixel
+     */
+    void set(int row, int col, int component, byte value);
+}
@@ -1,11 +1,23 @@
 package image;
 public class SobelFilter {
-    Image imageIn;
-    Image imageOut;
+    PixelMatrix imageIn;
+    PixelMatrix imageOut;
+    FilterMatrix sobelX;
+    FilterMatrix sobelY;
 
     SobelFilter(Image inputImage, Image outputImage) {
+        this(inputImage, outputImage, sobelX(), sobelY());
+    }
+
+    /**
+     * Creates a filter over any pixel and kernel storage, e.g. traced matrices that
+     * record the memory references made by applySobel()
+     */
+    public SobelFilter(PixelMatrix inputImage, PixelMatrix outputImage, FilterMatrix sobelX, FilterMatrix sobelY) {
         imageIn = inputImage;
         imageOut = outputImage;
+        this.sobelX = sobelX;
+        this.sobelY = sobelY;
     }
 
     // Sobel Kernels for edge detection
@@ -22,6 +34,20 @@ public class SobelFilter {
 
     };
 
+    /**
+     * Returns the SOBEL_X kernel as a filter matrix
+     */
+    public static FilterMatrix sobelX() {
+        return (row, col) -> SOBEL_X[row][col];
+    }
+
+    /**
+     * Returns the SOBEL_Y kernel as a filter matrix
+     */
+    public static FilterMatrix sobelY() {
+        return (row, col) -> SOBEL_Y[row][col];
+    }
+
     /**
      * Method to apply the Sobel filter to a BMP image
      *
@@ -30,41 +56,45 @@ public class SobelFilter {
      */
     public void applySobel() {
         // Traverse the image applying the two Sobel filters
-        for (int i = 1; i < imageIn.height - 1; i++) {
-            for (int j = 1; j < imageIn.width - 1; j++) {
+        for (int i = 1; i < imageIn.height() - 1; i++) {
+            for (int j = 1; j < imageIn.width() - 1; j++) {
                 int gradXRed = 0, gradXGreen = 0, gradXBlue = 0;
                 int gradYRed = 0, gradYGreen = 0, gradYBlue = 0;
 
                 // Apply the Sobel X and Y masks
                 for (int ki = -1; ki <= 1; ki++) {
                     for (int kj = -1; kj <= 1; kj++) {
-                        int red = imageIn.image[i + ki][j + kj][0];
-                        int green = imageIn.image[i + ki][j + kj][1];
-                        int blue = imageIn.image[i + ki][j + kj][2];
+                        int red = imageIn.get(i + ki, j + kj, 0);
+                        int green = imageIn.get(i + ki, j + kj, 1);
+                        int blue = imageIn.get(i + ki, j + kj, 2);
 
-                        gradXRed += red * SOBEL_X[ki + 1][kj + 1];
-                        gradXGreen += green * SOBEL_X[ki + 1][kj + 1];
-                        gradXBlue += blue * SOBEL_X[ki + 1][kj + 1];
+                        gradXRed += red * sobelX.get(ki + 1, kj + 1);
+                        gradXGreen += green * sobelX.get(ki + 1, kj + 1);
+                        gradXBlue += blue * sobelX.get(ki + 1, kj + 1);
 
-                        gradYRed += red * SOBEL_Y[ki + 1][kj + 1];
-                        gradYGreen += green * SOBEL_Y[ki + 1][kj + 1];
-                        gradYBlue += blue * SOBEL_Y[ki + 1][kj + 1];
+                        gradYRed += red * sobelY.get(ki + 1, kj + 1);
+                        gradYGreen += green * sobelY.get(ki + 1, kj + 1);
+                        gradYBlue += blue * sobelY.get(ki + 1, kj + 1);
                     }
                 }
 
                 // Calculate the gradient magnitude
-                int red = Math.min(Math.max((int) Math.sqrt(gradXRed * gradXRed +
-                        gradYRed * gradYRed), 0), 255);
-                int green = Math.min(Math.max((int) Math.sqrt(gradXGreen * gradXGreen +
-                        gradYGreen * gradYGreen), 0), 255);
-                int blue = Math.min(Math.max((int) Math.sqrt(gradXBlue * gradXBlue +
-                        gradYBlue * gradYBlue), 0), 255);
+                int red = gradientMagnitude(gradXRed, gradYRed);
+                int green = gradientMagnitude(gradXGreen, gradYGreen);
+                int blue = gradientMagnitude(gradXBlue, gradYBlue);
 
                 // Create the new RGB value
-                imageOut.image[i][j][0] = (byte) red;
-                imageOut.image[i][j][1] = (byte) green;
-                imageOut.image[i][j][2] = (byte) blue;
+                imageOut.set(i, j, 0, (byte) red);
+                imageOut.set(i, j, 1, (byte) green);
+                imageOut.set(i, j, 2, (byte) blue);
             }
         }
     }
+
+    /**
+     * Combines the X and Y gradients of a component into a value clamped to [0, 255]
+     */
+    static int gradientMagnitude(int gradX, int gradY) {
+        return Math.min(Math.max((int) Math.sqrt(gradX * gradX + gradY * gradY), 0), 255);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,184 @@
+package image;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Applies the Sobel filter to a BMP file row by row, without loading the image.
+ * Only three input rows are kept in memory, so memory use is O(width) no matter
+ * the height. The result is the same as loading the input twice (input and output
+ * image) and running SobelFilter: border pixels keep their input values.
+ */
+public class StreamingSobelFilter {
+    // Constants
+    private static final int WINDOW_ROWS = 3; // Rows needed by the 3x3 kernel
+    private static final int BYTES_PER_PIXEL = 3;
+
+    // Instance variables
+    private final String inputName;
+    private final String outputName;
+    private int width;
+    private int height;
+    private int rowSize; // Raw BMP row size including padding
+    private byte[][] window; // Ring buffer with the last three input rows
+    private byte[] outputRow;
+    private ByteBuffer readBlock;
+    private ByteBuffer writeBlock;
+
+    /**
+     * Creates a streaming filter from an input BMP file into an output BMP file
+     */
+    public StreamingSobelFilter(String inputName, String outputName) {
+        this.inputName = inputName;
+        this.outputName = outputName;
+    }
+
+    /**
+     * Method to apply the Sobel filter streaming the rows of the BMP file
+     *
+     * @pre the input file must be a BMP with 24 bits of bit depth
+     * @pos the output file contains the filtered image; an image without pixels
+     *      (zero width or height) is written as its header alone
+     * @return Whether the image was read and written completely
+     */
+    public boolean applySobel() {
+        try (FileChannel in = FileChannel.open(Paths.get(inputName), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(Paths.get(outputName), StandardOpenOption.WRITE,
+                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            copyHeader(in, out);
+            if (width <= 0 || height <= 0) {
+                return true; // No rows to stream, and a row size of 0 cannot split the input
+            }
+
+            initializeBuffers();
+            streamRows(in, out);
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Copies the BMP header to the output and extracts the image dimensions
+     */
+    private void copyHeader(FileChannel in, FileChannel out) throws IOException {
+        byte[] header = new byte[Image.HEADER_SIZE];
+        Image.readFully(in, ByteBuffer.wrap(header));
+        Image.writeFully(out, ByteBuffer.wrap(header));
+
+        width = Image.readWidth(header);
+        height = Image.readHeight(header);
+        rowSize = width * BYTES_PER_PIXEL + Image.rowPadding(width);
+    }
+
+    /**
+     * Allocates the row window and the I/O blocks, all proportional to the width
+     */
+    private void initializeBuffers() {
+        window = new byte[WINDOW_ROWS][rowSize];
+        outputRow = new byte[rowSize]; // Padding bytes stay zero
+        readBlock = Image.allocateBlock(rowSize, height);
+        readBlock.limit(0);
+        writeBlock = Image.allocateBlock(rowSize, height);
+    }
+
+    /**
+     * Reads every input row once and writes each output row as soon as it is known
+     */
+    private void streamRows(FileChannel in, FileChannel out) throws IOException {
+        for (int i = 0; i < height; i++) {
+            readRow(in, window[i % WINDOW_ROWS]);
+
+            // Row i completes the neighbourhood of row i - 1
+            if (i >= 2) {
+                filterRow(i - 1);
+                writeRow(out, outputRow);
+            } else if (i == 0) {
+                writeRow(out, window[0]); // First row is a border row
+            }
+        }
+
+        if (height >= 2) {
+            writeRow(out, window[(height - 1) % WINDOW_ROWS]); // Last row is a border row
+        }
+        flushWrites(out);
+    }
+
+    /**
+     * Computes output row i from input rows i - 1, i and i + 1 held in the window
+     */
+    private void filterRow(int i) {
+        byte[] above = window[(i - 1) % WINDOW_ROWS];
+        byte[] center = window[i % WINDOW_ROWS];
+        byte[] below = window[(i + 1) % WINDOW_ROWS];
+        byte[][] rows = { above, center, below };
+
+        // Border columns keep their input values
+        System.arraycopy(center, 0, outputRow, 0, BYTES_PER_PIXEL);
+        int last = (width - 1) * BYTES_PER_PIXEL;
+        System.arraycopy(center, last, outputRow, last, BYTES_PER_PIXEL);
+
+        for (int j = 1; j < width - 1; j++) {
+            for (int c = 0; c < BYTES_PER_PIXEL; c++) {
+                int gradX = 0, gradY = 0;
+
+                // Apply the Sobel X and Y masks (same order and signed values as SobelFilter)
+                for (int ki = -1; ki <= 1; ki++) {
+                    byte[] row = rows[ki + 1];
+                    for (int kj = -1; kj <= 1; kj++) {
+                        int value = row[(j + kj) * BYTES_PER_PIXEL + c];
+                        gradX += value * SobelFilter.SOBEL_X[ki + 1][kj + 1];
+                        gradY += value * SobelFilter.SOBEL_Y[ki + 1][kj + 1];
+                    }
+                }
+
+                outputRow[j * BYTES_PER_PIXEL + c] = (byte) SobelFilter.gradientMagnitude(gradX, gradY);
+            }
+        }
+    }
+
+    /**
+     * Copies the next raw row from the input, refilling the read block when it runs out
+     */
+    private void readRow(FileChannel in, byte[] row) throws IOException {
+        if (!readBlock.hasRemaining()) {
+            readBlock.clear();
+            long remaining = in.size() - in.position();
+            int bytes = (int) Math.min(readBlock.capacity(), remaining - remaining % rowSize);
+            readBlock.limit(Math.max(bytes, rowSize));
+            Image.readFully(in, readBlock);
+            readBlock.flip();
+        }
+        readBlock.get(row);
+    }
+
+    /**
+     * Queues a raw row for output, writing the block when it is full
+     */
+    private void writeRow(FileChannel out, byte[] row) throws IOException {
+        if (writeBlock.remaining() < rowSize) {
+            flushWrites(out);
+        }
+        writeBlock.put(row);
+    }
+
+    /**
+     * Writes the queued output rows
+     */
+    private void flushWrites(FileChannel out) throws IOException {
+        writeBlock.flip();
+        Image.writeFully(out, writeBlock);
+        writeBlock.clear();
+    }
+}
@@ -0,0 +1,115 @@
+package memory;
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Sequence of virtual byte addresses, independent of the page size.
+ * A ReferenceTrace for any page size is derived from it by shifting the addresses
+ * (or dividing them, for page sizes that are not powers of two), or through a PageMap
+ * for an address space with several page sizes.
+ */
+public class AddressTrace {
+    // Constants
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Instance variables
+    private int[] addresses = new int[INITIAL_CAPACITY];
+    private boolean[] writes = new boolean[INITIAL_CAPACITY];
+    private int size;
+    private int addressSpaceBytes; // Bytes spanned by the matrices
+
+    /**
+     * Appends a reference to a byte address
+     */
+    public void add(int address, boolean write) {
+        ensureCapacity(size + 1);
+        addresses[size] = address;
+        writes[size] = write;
+        size++;
+    }
+
+    /**
+     * Grows the backing arrays when needed
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > addresses.length) {
+            int newCapacity = Math.max(capacity, addresses.length + (addresses.length >> 1));
+            addresses = Arrays.copyOf(addresses, newCapacity);
+            writes = Arrays.copyOf(writes, newCapacity);
+        }
+    }
+
+    /**
+     * Sets the number of bytes of the address space, which fixes the page count of every page size
+     */
+    public void setAddressSpaceBytes(int addressSpaceBytes) {
+        this.addressSpaceBytes = addressSpaceBytes;
+    }
+
+    /**
+     * Returns the number of pages of the given size that cover the address space
+     */
+    public int pageCount(int pageSize) {
+        return (int) Math.ceil((double) addressSpaceBytes / pageSize);
+    }
+
+    /**
+     * Maps every address to its page and merges consecutive references to the same page into
+     * runs. Replaying the runs matches the expanded trace only with a deterministic Inspector
+     * period (see ReferenceTrace)
+     */
+    public ReferenceTrace toReferenceTrace(int pageSize) {
+        if (Integer.bitCount(pageSize) == 1) {
+            int shift = Integer.numberOfTrailingZeros(pageSize);
+            return toReferenceTrace(address -> address >>> shift);
+        }
+        return toReferenceTrace(address -> address / pageSize);
+    }
+
+    /**
+     * Maps every address to its page in an address space with several page sizes
+     */
+    public ReferenceTrace toReferenceTrace(PageMap map) {
+        return toReferenceTrace(map::pageOf);
+    }
+
+    private ReferenceTrace toReferenceTrace(IntUnaryOperator pageOf) {
+        ReferenceTrace trace = new ReferenceTrace();
+
+        int runPage = -1;
+        boolean runWrite = false;
+        int runCount = 0;
+        for (int i = 0; i < size; i++) {
+            int page = pageOf.applyAsInt(addresses[i]);
+
+            if (page == runPage) {
+                runWrite |= writes[i];
+                runCount++;
+                continue;
+            }
+
+            if (runCount > 0) {
+                trace.addRun(runPage, runWrite, runCount);
+            }
+            runPage = page;
+            runWrite = writes[i];
+            runCount = 1;
+        }
+
+        if (runCount > 0) {
+            trace.addRun(runPage, runWrite, runCount);
+        }
+        return trace;
+    }
+
+    /**
+     * Returns the number of references
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getAddressSpaceBytes() {
+        return addressSpaceBytes;
+    }
+}
@@ -0,0 +1,241 @@
+package memory;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Progress of a simulation that can be saved to a binary file together with the state of
+ * the OS (page table, RAM, SWAP, compressed tier, hard drive, prefetcher, metrics and time
+ * series) and resumed later.
+ * The file starts with the parameters of the scenario and a fingerprint of the trace, so a
+ * checkpoint is only resumed by the scenario that wrote it, and ends with a CRC-32 of
+ * everything before it. A checkpoint is validated in full before the OS is changed.
+ */
+public class Checkpoint {
+    // Constants
+    private static final int MAGIC = 0x43324350; // "C2CP"
+    private static final int VERSION = 7;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String CORRUPT_ERROR = "Checkpoint is truncated or corrupt";
+    private static final String PARTIAL_RESTORE_ERROR = "Checkpoint failed after the OS was partly restored";
+
+    // Progress of the reader
+    private final int nextRun; // First run of the trace not processed yet
+    private final long processed; // References processed before nextRun
+    private final int hits;
+    private final int faults;
+
+    /**
+     * Creates the progress of a reader
+     */
+    public Checkpoint(int nextRun, long processed, int hits, int faults) {
+        this.nextRun = nextRun;
+        this.processed = processed;
+        this.hits = hits;
+        this.faults = faults;
+    }
+
+    /**
+     * Writes this progress and the state of the OS to a temporary file next to the target
+     * and renames it over the target, so a crash while saving keeps the previous checkpoint
+     */
+    public void save(OS os, ReferenceTrace references, Path path) throws IOException {
+        Path absolute = path.toAbsolutePath();
+        Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), TEMP_SUFFIX);
+
+        CRC32 crc = new CRC32();
+        try (DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE), crc))) {
+            writeHeader(out, os, references);
+            writeProgress(out);
+            writeSystemState(out, os);
+            out.writeLong(crc.getValue());
+        }
+
+        try {
+            Files.move(temp, absolute, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Restores the state of the OS from a checkpoint file. The file is checked against its
+     * CRC and restored once into a scratch OS first, so an IOException always leaves the OS
+     * as it was and the run can start from the first reference.
+     *
+     * @return The progress to resume from, or null if there is no checkpoint for this scenario
+     * @throws IllegalStateException If restoring the OS itself fails after the scratch restore succeeded
+     */
+    public static Checkpoint load(OS os, ReferenceTrace references, Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+
+        byte[] data = Files.readAllBytes(path);
+        if (!readHeader(new DataInputStream(new ByteArrayInputStream(data)), os, references)) {
+            return null;
+        }
+        verifyChecksum(data);
+
+        OS scratch = new OS(os.frameCount, os.pageCount, os.pageSize, references, os.options);
+        Checkpoint checkpoint = restore(data, scratch, references);
+
+        try {
+            restore(data, os, references);
+        } catch (IOException e) {
+            throw new IllegalStateException(PARTIAL_RESTORE_ERROR, e);
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Fails unless the last 8 bytes hold the CRC-32 of the rest of the file
+     */
+    private static void verifyChecksum(byte[] data) throws IOException {
+        if (data.length < Long.BYTES) {
+            throw new IOException(CORRUPT_ERROR);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - Long.BYTES);
+        if (ByteBuffer.wrap(data, data.length - Long.BYTES, Long.BYTES).getLong() != crc.getValue()) {
+            throw new IOException(CORRUPT_ERROR);
+        }
+    }
+
+    /**
+     * Reads the progress and restores the state of the OS from a verified checkpoint
+     */
+    private static Checkpoint restore(byte[] data, OS os, ReferenceTrace references) throws IOException {
+        ByteArrayInputStream bytes = new ByteArrayInputStream(data);
+        DataInputStream in = new DataInputStream(bytes);
+        readHeader(in, os, references);
+
+        Checkpoint checkpoint = new Checkpoint(in.readInt(), in.readLong(), in.readInt(), in.readInt());
+        readSystemState(in, os);
+        if (bytes.available() != Long.BYTES) {
+            throw new IOException(CORRUPT_ERROR);
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Writes the parameters that identify the scenario
+     */
+    private static void writeHeader(DataOutputStream out, OS os, ReferenceTrace references) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(os.pageSize);
+        out.writeInt(os.frameCount);
+        out.writeInt(os.pageCount);
+        out.writeLong(references.referenceCount());
+        out.writeLong(references.fingerprint());
+        out.writeBoolean(os.timeSeries != null);
+        out.writeInt(os.options.getPrefetchPolicy().ordinal());
+        out.writeInt(os.options.getPrefetchDepth());
+        out.writeBoolean(os.pageUnits != null);
+        out.writeLong(os.options.getCompressedSwapBytes());
+        out.writeDouble(os.options.getCompressionRatio());
+        out.writeLong(os.options.getInspectorPeriod());
+    }
+
+    /**
+     * Checks that a checkpoint was written by this scenario
+     */
+    private static boolean readHeader(DataInputStream in, OS os, ReferenceTrace references) throws IOException {
+        return in.readInt() == MAGIC
+                && in.readInt() == VERSION
+                && in.readInt() == os.pageSize
+                && in.readInt() == os.frameCount
+                && in.readInt() == os.pageCount
+                && in.readLong() == references.referenceCount()
+                && in.readLong() == references.fingerprint()
+                && in.readBoolean() == (os.timeSeries != null)
+                && in.readInt() == os.options.getPrefetchPolicy().ordinal()
+                && in.readInt() == os.options.getPrefetchDepth()
+                && in.readBoolean() == (os.pageUnits != null)
+                && in.readLong() == os.options.getCompressedSwapBytes()
+                && in.readDouble() == os.options.getCompressionRatio()
+                && in.readLong() == os.options.getInspectorPeriod();
+    }
+
+    private void writeProgress(DataOutputStream out) throws IOException {
+        out.writeInt(nextRun);
+        out.writeLong(processed);
+        out.writeInt(hits);
+        out.writeInt(faults);
+    }
+
+    /**
+     * Writes the memory components and the counters of the OS
+     */
+    private static void writeSystemState(DataOutputStream out, OS os) throws IOException {
+        os.pageTable.writeState(out);
+        os.ram.writeState(out);
+        os.swap.writeState(out);
+        os.hardDrive.writeState(out);
+        os.metrics.writeState(out);
+
+        if (os.compressedSwap != null) {
+            os.compressedSwap.writeState(out);
+        }
+
+        if (os.prefetcher != null) {
+            os.prefetcher.writeState(out);
+        }
+
+        if (os.timeSeries != null) {
+            os.timeSeries.writeState(out);
+        }
+    }
+
+    /**
+     * Restores the memory components and the counters of the OS
+     */
+    private static void readSystemState(DataInputStream in, OS os) throws IOException {
+        os.pageTable.readState(in);
+        os.ram.readState(in);
+        os.swap.readState(in);
+        os.hardDrive.readState(in);
+        os.metrics.readState(in);
+
+        if (os.compressedSwap != null) {
+            os.compressedSwap.readState(in);
+        }
+
+        if (os.prefetcher != null) {
+            os.prefetcher.readState(in);
+        }
+
+        if (os.timeSeries != null) {
+            os.timeSeries.readState(in);
+        }
+    }
+
+    public int getNextRun() {
+        return nextRun;
+    }
+
+    public long getProcessed() {
+        return processed;
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public int getFaults() {
+        return faults;
+    }
+}
@@ -0,0 +1,118 @@
+package memory;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import memory.events.SwapWriteEvent;
+
+/**
+ * Compressed pool in RAM in front of SWAP, in the style of zswap. Dirty pages evicted by NRU
+ * are stored here compressed; when the pool is full the oldest entries are written back to
+ * SWAP. A fault on a page in the pool is served by decompressing it, without swap I/O.
+ * Every page is assumed to compress by the same ratio.
+ */
+public class CompressedSwap {
+    // Instance variables
+    private final long capacityBytes;
+    private final int compressedPageBytes;
+    private final LinkedHashMap<Integer, Integer> entries = new LinkedHashMap<>(); // Page to bytes, oldest first
+    private long usedBytes;
+
+    /**
+     * Creates an empty pool
+     *
+     * @param capacityBytes Bytes of RAM the pool may use
+     * @param compressionRatio Uncompressed size divided by compressed size
+     * @param pageSize Uncompressed size of a page
+     */
+    public CompressedSwap(long capacityBytes, double compressionRatio, int pageSize) {
+        this.capacityBytes = capacityBytes;
+        this.compressedPageBytes = (int) Math.ceil(pageSize / compressionRatio);
+    }
+
+    /**
+     * Stores an evicted dirty page, writing the oldest entries back to SWAP to make room.
+     * A page that cannot fit even in the empty pool goes straight to SWAP.
+     *
+     * @return Whether the page was stored in the pool
+     */
+    public boolean store(int page, SWAP swap, SimulationMetrics metrics) {
+        if (compressedPageBytes > capacityBytes) {
+            return false;
+        }
+
+        Iterator<Map.Entry<Integer, Integer>> oldest = entries.entrySet().iterator();
+        while (usedBytes + compressedPageBytes > capacityBytes) {
+            Map.Entry<Integer, Integer> entry = oldest.next();
+            swap.copyPage(entry.getKey());
+            SwapWriteEvent.emit(entry.getKey());
+            usedBytes -= entry.getValue();
+            oldest.remove();
+            metrics.recordWriteback();
+        }
+
+        entries.put(page, compressedPageBytes);
+        usedBytes += compressedPageBytes;
+        return true;
+    }
+
+    /**
+     * Removes a page from the pool to load it into RAM
+     *
+     * @return Whether the page was in the pool
+     */
+    public boolean load(int page) {
+        Integer bytes = entries.remove(page);
+
+        if (bytes == null) {
+            return false;
+        }
+        usedBytes -= bytes;
+        return true;
+    }
+
+    /**
+     * Checks if a page is stored in the pool
+     */
+    public boolean contains(int page) {
+        return entries.containsKey(page);
+    }
+
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public long getCapacityBytes() {
+        return capacityBytes;
+    }
+
+    /**
+     * Writes the pages of the pool, oldest first
+     */
+    void writeState(DataOutput out) throws IOException {
+        out.writeInt(entries.size());
+
+        for (Map.Entry<Integer, Integer> entry : entries.entrySet()) {
+            out.writeInt(entry.getKey());
+            out.writeInt(entry.getValue());
+        }
+    }
+
+    /**
+     * Replaces the pages of the pool with the ones written by writeState()
+     */
+    void readState(DataInput in) throws IOException {
+        entries.clear();
+        usedBytes = 0;
+
+        for (int remaining = in.readInt(); remaining > 0; remaining--) {
+            int page = in.readInt();
+            int bytes = in.readInt();
+            entries.put(page, bytes);
+            usedBytes += bytes;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package memory;
+
+/**
+ * Differential verification of a simulation engine. The same trace is simulated with the
+ * reference options and with the candidate options (e.g. a batched Reader), both with the
+ * Inspector replaced by a reset every fixed number of references, so the outcome no longer
+ * depends on thread timing. Hits, faults and the sequence of evictions must match exactly.
+ *
+ * Only the deterministic schedule is verified. With the timed Inspector the two engines
+ * differ run to run anyway, so a match here says nothing about a difference in when the
+ * candidate sets its bits relative to the timed resets, e.g. around the Reader's sleeps.
+ */
+public class EngineVerifier {
+    // Constants
+    private static final int NO_DIFFERENCE = -1;
+    private static final String TIMED_INSPECTOR_ERROR = "Verification needs a deterministic Inspector period";
+    private static final String EVICTION_FORMAT = "evicted %d for %d at reference %d";
+
+    /**
+     * Simulates the trace with both options and compares the results
+     *
+     * @param reference Options of the engine taken as correct
+     * @param candidate Options of the engine under test; must use the same Inspector period
+     */
+    public static Outcome compare(int frameCount, int pageCount, int pageSize, ReferenceTrace references,
+                                  SimulationOptions reference, SimulationOptions candidate) {
+        if (reference.getInspectorPeriod() <= 0 || reference.getInspectorPeriod() != candidate.getInspectorPeriod()) {
+            throw new IllegalArgumentException(TIMED_INSPECTOR_ERROR);
+        }
+
+        OS referenceOS = simulate(frameCount, pageCount, pageSize, references, reference);
+        OS candidateOS = simulate(frameCount, pageCount, pageSize, references, candidate);
+        return new Outcome(referenceOS, candidateOS);
+    }
+
+    /**
+     * Simulates the trace with a copy of the options that logs evictions and writes no
+     * metrics or time series file, so verifying leaves the caller's options and files alone
+     */
+    private static OS simulate(int frameCount, int pageCount, int pageSize, ReferenceTrace references,
+                               SimulationOptions options) {
+        SimulationOptions verified = options.copy()
+                .withEvictionLog(true)
+                .withTimeSeriesWindow(0)
+                .withMetricsSaved(false);
+        OS os = new OS(frameCount, pageCount, pageSize, references, verified);
+        os.start();
+        return os;
+    }
+
+    /**
+     * Result of a comparison, with the first point where the engines diverge
+     */
+    public static class Outcome {
+        private final int referenceHits;
+        private final int referenceFaults;
+        private final int candidateHits;
+        private final int candidateFaults;
+        private final EvictionLog referenceLog;
+        private final EvictionLog candidateLog;
+        private final int firstDifference; // Index of the first different eviction, or NO_DIFFERENCE
+        private final int firstHitDifference; // Index of the first different hit sample, or NO_DIFFERENCE
+
+        Outcome(OS reference, OS candidate) {
+            referenceHits = reference.getHits();
+            referenceFaults = reference.getFaults();
+            candidateHits = candidate.getHits();
+            candidateFaults = candidate.getFaults();
+            referenceLog = reference.evictionLog;
+            candidateLog = candidate.evictionLog;
+            firstDifference = referenceLog.firstDifference(candidateLog);
+            firstHitDifference = referenceLog.firstHitDifference(candidateLog);
+        }
+
+        /**
+         * Checks if both engines produced the same counts and evictions
+         */
+        public boolean matches() {
+            return firstDifference == NO_DIFFERENCE && firstHitDifference == NO_DIFFERENCE
+                    && referenceHits == candidateHits && referenceFaults == candidateFaults;
+        }
+
+        /**
+         * Describes the first difference, or returns "match"
+         */
+        public String describe() {
+            if (firstDifference != NO_DIFFERENCE) {
+                return "eviction " + firstDifference + ": reference " + describeEviction(referenceLog)
+                        + ", candidate " + describeEviction(candidateLog);
+            }
+            if (firstHitDifference != NO_DIFFERENCE) {
+                return "hits by reference " + getDivergencePosition() + ": " + describeHits(referenceLog) + " vs "
+                        + describeHits(candidateLog);
+            }
+            if (!matches()) {
+                return "hits/faults " + referenceHits + "/" + referenceFaults + " vs " + candidateHits + "/"
+                        + candidateFaults;
+            }
+            return "match";
+        }
+
+        private String describeEviction(EvictionLog log) {
+            if (firstDifference >= log.size()) {
+                return "none";
+            }
+            return String.format(EVICTION_FORMAT, log.victim(firstDifference), log.loadedPage(firstDifference),
+                    log.position(firstDifference));
+        }
+
+        private String describeHits(EvictionLog log) {
+            return firstHitDifference < log.sampleCount() ? String.valueOf(log.sampleHits(firstHitDifference))
+                    : "none";
+        }
+
+        /**
+         * Returns the reference index where the engines diverge, or -1 if they match. For a
+         * different eviction it is the fault that caused it; when only the hit counts differ
+         * it is the first sample where they do, so the difference lies in the Inspector period
+         * that ends there.
+         */
+        public long getDivergencePosition() {
+            long position = Long.MAX_VALUE;
+
+            if (firstDifference != NO_DIFFERENCE) {
+                if (firstDifference < referenceLog.size()) {
+                    position = referenceLog.position(firstDifference);
+                }
+                if (firstDifference < candidateLog.size()) {
+                    position = Math.min(position, candidateLog.position(firstDifference));
+                }
+            }
+            if (firstHitDifference != NO_DIFFERENCE) {
+                if (firstHitDifference < referenceLog.sampleCount()) {
+                    position = Math.min(position, referenceLog.samplePosition(firstHitDifference));
+                }
+                if (firstHitDifference < candidateLog.sampleCount()) {
+                    position = Math.min(position, candidateLog.samplePosition(firstHitDifference));
+                }
+            }
+            return position == Long.MAX_VALUE ? NO_DIFFERENCE : position;
+        }
+
+        public int getReferenceFaults() {
+            return referenceFaults;
+        }
+
+        public int getCandidateFaults() {
+            return candidateFaults;
+        }
+
+        public int getEvictionCount() {
+            return referenceLog.size();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package memory;
+import java.util.Arrays;
+
+/**
+ * Sequence of the evictions of a simulation: for each one, the position in the trace of the
+ * fault that caused it, the page evicted and the page it made room for. It also samples the
+ * hit count at fixed positions of the trace, so two engines whose evictions match but whose
+ * counts differ can still be located. Used to compare two engines eviction by eviction.
+ */
+public class EvictionLog {
+    // Constants
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Instance variables
+    private long[] positions = new long[INITIAL_CAPACITY];
+    private int[] victims = new int[INITIAL_CAPACITY];
+    private int[] loadedPages = new int[INITIAL_CAPACITY];
+    private int size;
+    private long[] samplePositions = new long[INITIAL_CAPACITY];
+    private int[] sampleHits = new int[INITIAL_CAPACITY];
+    private int sampleCount;
+
+    /**
+     * Appends an eviction
+     *
+     * @param position Reference index of the fault that caused it
+     * @param victim Page evicted
+     * @param loadedPage Page loaded in its place
+     */
+    public void record(long position, int victim, int loadedPage) {
+        ensureCapacity(size + 1);
+        positions[size] = position;
+        victims[size] = victim;
+        loadedPages[size] = loadedPage;
+        size++;
+    }
+
+    /**
+     * Appends a sample of the hit count
+     *
+     * @param position References processed when the sample is taken
+     * @param hits Hits among those references
+     */
+    public void recordHits(long position, int hits) {
+        if (sampleCount == sampleHits.length) {
+            int newCapacity = sampleHits.length + (sampleHits.length >> 1);
+            samplePositions = Arrays.copyOf(samplePositions, newCapacity);
+            sampleHits = Arrays.copyOf(sampleHits, newCapacity);
+        }
+        samplePositions[sampleCount] = position;
+        sampleHits[sampleCount] = hits;
+        sampleCount++;
+    }
+
+    /**
+     * Grows the backing arrays when needed
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > victims.length) {
+            int newCapacity = Math.max(capacity, victims.length + (victims.length >> 1));
+            positions = Arrays.copyOf(positions, newCapacity);
+            victims = Arrays.copyOf(victims, newCapacity);
+            loadedPages = Arrays.copyOf(loadedPages, newCapacity);
+        }
+    }
+
+    /**
+     * Returns the index of the first eviction that differs from the other log, or -1 if both
+     * are equal. When one log is a prefix of the other, the first extra eviction differs.
+     */
+    public int firstDifference(EvictionLog other) {
+        int common = Math.min(size, other.size);
+
+        for (int i = 0; i < common; i++) {
+            if (positions[i] != other.positions[i] || victims[i] != other.victims[i]
+                    || loadedPages[i] != other.loadedPages[i]) {
+                return i;
+            }
+        }
+        return size == other.size ? -1 : common;
+    }
+
+    /**
+     * Returns the index of the first hit sample that differs from the other log, in position
+     * or count, or -1 if both are equal
+     */
+    public int firstHitDifference(EvictionLog other) {
+        int common = Math.min(sampleCount, other.sampleCount);
+
+        for (int i = 0; i < common; i++) {
+            if (samplePositions[i] != other.samplePositions[i] || sampleHits[i] != other.sampleHits[i]) {
+                return i;
+            }
+        }
+        return sampleCount == other.sampleCount ? -1 : common;
+    }
+
+    /**
+     * Returns the number of evictions recorded
+     */
+    public int size() {
+        return size;
+    }
+
+    public long position(int eviction) {
+        return positions[eviction];
+    }
+
+    public int victim(int eviction) {
+        return victims[eviction];
+    }
+
+    public int loadedPage(int eviction) {
+        return loadedPages[eviction];
+    }
+
+    public int sampleCount() {
+        return sampleCount;
+    }
+
+    public long samplePosition(int sample) {
+        return samplePositions[sample];
+    }
+
+    public int sampleHits(int sample) {
+        return sampleHits[sample];
+    }
+}
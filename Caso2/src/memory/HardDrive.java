@@ -1,4 +1,7 @@
 package memory;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.HashSet;
 
 /**
@@ -56,4 +59,26 @@ public class HardDrive {
     public boolean pageInHardDrive(int page) {
         return memory.contains(page);
     }
+
+    /**
+     * Writes the pages stored
+     */
+    void writeState(DataOutput out) throws IOException {
+        out.writeInt(memory.size());
+
+        for (int page : memory) {
+            out.writeInt(page);
+        }
+    }
+
+    /**
+     * Replaces the pages stored with the ones written by writeState()
+     */
+    void readState(DataInput in) throws IOException {
+        memory.clear();
+
+        for (int remaining = in.readInt(); remaining > 0; remaining--) {
+            memory.add(in.readInt());
+        }
+    }
 }
\ No newline at end of file
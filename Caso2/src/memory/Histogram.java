@@ -0,0 +1,133 @@
+package memory;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Log-linear histogram of non-negative long values, in the spirit of HdrHistogram.
+ * Values below 64 are counted exactly; larger values fall in buckets with a relative
+ * width of 1/32 (about 3% precision). Recording never allocates.
+ */
+public class Histogram {
+    // Constants
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS; // 32 buckets per power of two
+    private static final int LINEAR_LIMIT = SUB_BUCKET_COUNT << 1; // Values below are exact
+    private static final int LINEAR_EXPONENT = SUB_BUCKET_BITS + 1;
+    private static final int BUCKET_COUNT = LINEAR_LIMIT + (Long.SIZE - 1 - LINEAR_EXPONENT) * SUB_BUCKET_COUNT;
+
+    // Instance variables
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long totalCount;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    /**
+     * Records one occurrence of a value (negative values are recorded as 0)
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts[bucketIndex(v)]++;
+        totalCount++;
+        sum += v;
+        min = Math.min(min, v);
+        max = Math.max(max, v);
+    }
+
+    /**
+     * Maps a value to its bucket
+     */
+    private static int bucketIndex(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int top = (int) (value >>> (exponent - SUB_BUCKET_BITS)); // In [32, 64)
+        return LINEAR_LIMIT + (exponent - LINEAR_EXPONENT) * SUB_BUCKET_COUNT + (top - SUB_BUCKET_COUNT);
+    }
+
+    /**
+     * Returns the lowest value that falls in a bucket
+     */
+    private static long bucketValue(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+
+        int exponent = LINEAR_EXPONENT + (index - LINEAR_LIMIT) / SUB_BUCKET_COUNT;
+        long top = SUB_BUCKET_COUNT + (index - LINEAR_LIMIT) % SUB_BUCKET_COUNT;
+        return top << (exponent - SUB_BUCKET_BITS);
+    }
+
+    /**
+     * Returns the value below which the given percentage of the recorded values fall
+     */
+    public long percentile(double percentage) {
+        if (totalCount == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(totalCount * percentage / 100.0));
+        long seen = 0;
+
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(Math.max(bucketValue(i), min), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Writes the non-empty buckets and the summary values
+     */
+    void writeState(DataOutput out) throws IOException {
+        out.writeLong(totalCount);
+        out.writeLong(sum);
+        out.writeLong(min);
+        out.writeLong(max);
+
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                out.writeShort(i);
+                out.writeLong(counts[i]);
+            }
+        }
+        out.writeShort(-1);
+    }
+
+    /**
+     * Replaces the recorded values with the ones written by writeState()
+     */
+    void readState(DataInput in) throws IOException {
+        totalCount = in.readLong();
+        sum = in.readLong();
+        min = in.readLong();
+        max = in.readLong();
+        Arrays.fill(counts, 0);
+
+        for (int i = in.readShort(); i >= 0; i = in.readShort()) {
+            counts[i] = in.readLong();
+        }
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public double getMean() {
+        return totalCount == 0 ? 0 : (double) sum / totalCount;
+    }
+
+    public long getMin() {
+        return totalCount == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+}
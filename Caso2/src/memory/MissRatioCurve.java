@@ -0,0 +1,216 @@
+package memory;
+
+/**
+ * Miss ratio curve of LRU replacement: the faults a trace causes for every number of frames
+ * at once, computed from LRU stack distances (Mattson) in a single pass over the trace.
+ * A sampled curve follows only the pages whose hash falls below a threshold (SHARDS) and
+ * scales distances and counts by the sampling rate, so its cost shrinks with the rate.
+ * Since the number of pages is known, the rate used for scaling is the fraction of pages
+ * actually sampled rather than the requested one, which lowers the error on small address spaces.
+ * The LRU stack only holds the sampled pages whose distance still falls below maxFrames once
+ * scaled; a page pushed deeper falls off and its next reference counts as a miss, which is
+ * the bucket its distance would have scaled to anyway. The cost per sampled run is thus
+ * bounded by maxFrames * rate, whatever the number of pages.
+ */
+public class MissRatioCurve {
+    // Constants
+    private static final int HASH_BITS = 24;
+    private static final int HASH_MASK = (1 << HASH_BITS) - 1;
+    private static final double FULL_RATE = 1.0;
+    private static final int NOT_IN_STACK = -1;
+
+    // Instance variables
+    private final long referenceCount;
+    private final long sampledReferences;
+    private final double[] faults; // Estimated faults with f frames, for f = 0..maxFrames
+
+    private MissRatioCurve(long referenceCount, long sampledReferences, double[] faults) {
+        this.referenceCount = referenceCount;
+        this.sampledReferences = sampledReferences;
+        this.faults = faults;
+    }
+
+    /**
+     * Computes the exact curve from every reference of the trace
+     *
+     * @param maxFrames Largest number of frames of the curve
+     */
+    public static MissRatioCurve exact(ReferenceTrace trace, int pageCount, int maxFrames) {
+        return sampled(trace, pageCount, maxFrames, FULL_RATE, 0);
+    }
+
+    /**
+     * Estimates the curve from the references to a hashed sample of the pages
+     *
+     * @param rate Fraction of the pages sampled, in (0, 1]
+     * @param seed Seed of the page hash; different seeds sample different pages
+     */
+    public static MissRatioCurve sampled(ReferenceTrace trace, int pageCount, int maxFrames, double rate, int seed) {
+        boolean[] sampledPages = selectPages(pageCount, rate, seed);
+        double effectiveRate = sampledFraction(sampledPages);
+        long[] distances = new long[maxFrames + 1]; // Last bucket: cold misses and distances >= maxFrames
+        int capacity = stackCapacity(maxFrames, effectiveRate, pageCount);
+        int[] stack = new int[capacity]; // LRU stack of the sampled pages, most recent first
+        int depth = 0;
+        long sampled = 0;
+
+        for (int run = 0; run < trace.size(); run++) {
+            int page = trace.page(run);
+            if (!sampledPages[page]) {
+                continue;
+            }
+
+            int distance = findInStack(stack, depth, page);
+            if (distance == NOT_IN_STACK) {
+                distances[maxFrames]++;
+                moveToFront(stack, Math.min(depth, capacity - 1), page); // Drops the bottom page when full
+                depth = Math.min(depth + 1, capacity);
+            } else {
+                distances[scaleDistance(distance, effectiveRate, maxFrames)]++;
+                moveToFront(stack, distance, page);
+            }
+
+            // The rest of the run re-references the most recent page
+            distances[0] += trace.count(run) - 1;
+            sampled += trace.count(run);
+        }
+
+        return new MissRatioCurve(trace.referenceCount(), sampled, accumulateFaults(distances, effectiveRate));
+    }
+
+    /**
+     * Returns the smallest stack depth whose distances all scale to the last bucket, so the
+     * stack never needs to be deeper (at least one entry and at most every page)
+     */
+    private static int stackCapacity(int maxFrames, double rate, int pageCount) {
+        int depth = (int) Math.min(pageCount, Math.ceil(maxFrames * rate));
+
+        while (depth > 0 && scaleDistance(depth - 1, rate, maxFrames) >= maxFrames) {
+            depth--;
+        }
+        while (depth < pageCount && scaleDistance(depth, rate, maxFrames) < maxFrames) {
+            depth++;
+        }
+        return Math.max(1, depth);
+    }
+
+    /**
+     * Chooses the pages whose hash falls below rate * 2^HASH_BITS
+     */
+    private static boolean[] selectPages(int pageCount, double rate, int seed) {
+        boolean[] sampled = new boolean[pageCount];
+        long threshold = (long) Math.ceil(rate * (1 << HASH_BITS));
+
+        for (int page = 0; page < pageCount; page++) {
+            sampled[page] = rate >= FULL_RATE || (hash(page, seed) & HASH_MASK) < threshold;
+        }
+        return sampled;
+    }
+
+    /**
+     * Returns the fraction of the pages that are sampled (at least one page is counted)
+     */
+    private static double sampledFraction(boolean[] sampledPages) {
+        int sampled = 0;
+
+        for (boolean page : sampledPages) {
+            if (page) {
+                sampled++;
+            }
+        }
+        return (double) Math.max(1, sampled) / sampledPages.length;
+    }
+
+    /**
+     * Mixes the bits of a page number (MurmurHash3 finalizer)
+     */
+    private static int hash(int page, int seed) {
+        int h = page ^ (seed * 0x9E3779B9);
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * Returns the position of a page in the LRU stack, which is its stack distance
+     */
+    private static int findInStack(int[] stack, int depth, int page) {
+        for (int i = 0; i < depth; i++) {
+            if (stack[i] == page) {
+                return i;
+            }
+        }
+        return NOT_IN_STACK;
+    }
+
+    /**
+     * Shifts the first position entries down and puts the page on top
+     */
+    private static void moveToFront(int[] stack, int position, int page) {
+        System.arraycopy(stack, 0, stack, 1, position);
+        stack[0] = page;
+    }
+
+    /**
+     * Converts a distance among sampled pages to the distance it stands for among all pages
+     */
+    private static int scaleDistance(int distance, double rate, int maxFrames) {
+        return (int) Math.min(maxFrames, (long) (distance / rate));
+    }
+
+    /**
+     * A reference faults with f frames when its distance is at least f, so the faults with f
+     * frames are the references in buckets f and above, scaled back to the whole trace
+     */
+    private static double[] accumulateFaults(long[] distances, double rate) {
+        double[] faults = new double[distances.length];
+        long atLeast = 0;
+
+        for (int f = distances.length - 1; f >= 0; f--) {
+            atLeast += distances[f];
+            faults[f] = atLeast / rate;
+        }
+        return faults;
+    }
+
+    /**
+     * Returns the estimated faults with the given number of frames
+     */
+    public double getFaults(int frames) {
+        return faults[Math.min(frames, faults.length - 1)];
+    }
+
+    /**
+     * Returns the estimated fraction of references that fault with the given number of frames
+     */
+    public double getMissRatio(int frames) {
+        return getFaults(frames) / referenceCount;
+    }
+
+    /**
+     * Returns the largest difference in miss ratio with another curve over 1..maxFrames frames
+     */
+    public double maxError(MissRatioCurve reference) {
+        double error = 0;
+
+        for (int frames = 1; frames < faults.length; frames++) {
+            error = Math.max(error, Math.abs(getMissRatio(frames) - reference.getMissRatio(frames)));
+        }
+        return error;
+    }
+
+    public int getMaxFrames() {
+        return faults.length - 1;
+    }
+
+    public long getReferenceCount() {
+        return referenceCount;
+    }
+
+    public long getSampledReferences() {
+        return sampledReferences;
+    }
+}
@@ -2,6 +2,9 @@ package memory;
 import java.util.ArrayList;
 import java.util.List;
 
+import memory.events.EvictionEvent;
+import memory.events.SwapWriteEvent;
+
 /**
  * Implements the Not Recently Used (NRU) page replacement algorithm
  */
@@ -19,6 +22,7 @@ public class NRU {
 
     // Operating system reference
     private final OS os;
+    private int victimClass; // Class the last selected candidate was taken from
 
     /**
      * Creates a new NRU page replacement algorithm
@@ -36,7 +40,13 @@ public class NRU {
     public Integer execute(int newPage) {
         int victimPage = selectCandidate();
         int freedFrame = freeVictimPage(victimPage);
-        handleModifiedPage(victimPage);
+        boolean dirty = handleModifiedPage(victimPage);
+        os.metrics.recordEviction(victimClass, dirty);
+        if (os.evictionLog != null) {
+            os.evictionLog.record(os.metrics.getLastFaultPosition(), victimPage, newPage);
+        }
+        handleUnusedPrefetch(victimPage);
+        EvictionEvent.emit(victimPage, freedFrame, victimClass, dirty);
         return freedFrame;
     }
 
@@ -46,15 +56,42 @@ public class NRU {
     private int freeVictimPage(int victimPage) {
         int frame = os.pageTable.getFrame(victimPage);
         os.pageTable.freeFrame(victimPage);
+
+        // With several page sizes frames are allocated as blocks, so they are returned to RAM
+        if (os.pageUnits != null) {
+            os.ram.free(frame, os.pageUnits[victimPage]);
+        }
         return frame;
     }
 
     /**
-     * Handles a modified page by copying it to swap if needed
+     * Handles a modified page by copying it to the compressed tier, if any, or to swap
+     *
+     * @return Whether the page was modified and had to be written
      */
-    private void handleModifiedPage(int victimPage) {
-        if (os.pageTable.getModifiedBit(victimPage)) {
+    private boolean handleModifiedPage(int victimPage) {
+        if (!os.pageTable.getModifiedBit(victimPage)) {
+            return false;
+        }
+
+        if (os.compressedSwap != null && os.compressedSwap.store(victimPage, os.swap, os.metrics)) {
+            os.metrics.recordCompressedStore();
+        } else {
             os.swap.copyPage(victimPage);
+            SwapWriteEvent.emit(victimPage);
+            os.metrics.recordSwapWrite();
+        }
+        return true;
+    }
+
+    /**
+     * Counts a victim that was prefetched and never referenced as a wasted prefetch
+     */
+    private void handleUnusedPrefetch(int victimPage) {
+        if (os.pageTable.getPrefetchedBit(victimPage)) {
+            os.pageTable.setPrefetchedBit(victimPage, false);
+            os.metrics.recordWastedPrefetch();
+            os.prefetcher.onWastedPrefetch(victimPage);
         }
     }
 
@@ -128,8 +165,10 @@ public class NRU {
      * Selects the first victim page from the lowest non-empty class
      */
     private int selectVictimFromClasses(List<List<Integer>> classes) {
-        for (List<Integer> classPages : classes) {
+        for (int classIndex = 0; classIndex < classes.size(); classIndex++) {
+            List<Integer> classPages = classes.get(classIndex);
             if (!classPages.isEmpty()) {
+                victimClass = classIndex;
                 return classPages.get(FIRST_ELEMENT);
             }
         }
@@ -1,6 +1,8 @@
 package memory;
-import java.util.ArrayList;
 
+import memory.events.ScenarioEvent;
+import memory.jmx.SimulationMonitor;
+import memory.prefetch.Prefetcher;
 import memory.threads.Inspector;
 import memory.threads.Reader;
 
@@ -10,7 +12,9 @@ import memory.threads.Reader;
 public class OS {
     // Constants
     private static final boolean PRELOAD_PAGES = false;
+    private static final boolean REGISTER_MBEAN = true; // Live counters over JMX while a scenario runs
     private static final String THREAD_INTERRUPTED_ERROR = "Thread was interrupted: ";
+    private static final String PAGE_TOO_LARGE_ERROR = "A page of %d frames does not fit in %d frames";
 
     // System parameters
     public int frameCount;
@@ -22,15 +26,31 @@ public class OS {
     public RAM ram;
     public SWAP swap;
     public HardDrive hardDrive;
+    public SimulationMetrics metrics;
+    public TimeSeries timeSeries; // null when disabled
+    public SimulationOptions options;
+    public Prefetcher prefetcher; // null when pages are only loaded on demand
+    public int[] pageUnits; // Base frames taken by each page; null when every page takes one
+    public CompressedSwap compressedSwap; // null when dirty victims go straight to SWAP
+    public EvictionLog evictionLog; // null unless requested by the options
 
     // Thread components
     private Inspector inspector;
     private Reader reader;
+    private ReferenceTrace references;
 
     /**
      * Creates a new operating system with the specified configuration
      */
-    public OS(int frameCount, int pageCount, int pageSize, ArrayList<String[]> references) {
+    public OS(int frameCount, int pageCount, int pageSize, ReferenceTrace references) {
+        this(frameCount, pageCount, pageSize, references, new SimulationOptions());
+    }
+
+    /**
+     * Creates a new operating system with the specified configuration and options
+     */
+    public OS(int frameCount, int pageCount, int pageSize, ReferenceTrace references, SimulationOptions options) {
+        this.options = options;
         initializeSystemParameters(frameCount, pageCount, pageSize);
         initializeMemoryComponents();
         initializeThreadComponents(references);
@@ -53,31 +73,105 @@ public class OS {
         swap = new SWAP();
         hardDrive = new HardDrive(pageCount);
         pageTable = new PageTable(pageCount, frameCount, PRELOAD_PAGES);
+        metrics = new SimulationMetrics(pageCount);
+        prefetcher = options.getPrefetchPolicy().create(options.getPrefetchDepth());
+
+        if (options.getCompressedSwapBytes() > 0) {
+            compressedSwap = new CompressedSwap(options.getCompressedSwapBytes(), options.getCompressionRatio(),
+                    pageSize);
+        }
+
+        if (options.isEvictionLogged()) {
+            evictionLog = new EvictionLog();
+        }
+
+        if (options.getPageMap() != null) {
+            initializePageUnits(options.getPageMap());
+        }
+
+        if (options.getTimeSeriesWindow() > 0) {
+            timeSeries = new TimeSeries(options.getTimeSeriesWindow(), pageCount);
+        }
+    }
+
+    /**
+     * Computes the base frames taken by each page of a map with several page sizes
+     */
+    private void initializePageUnits(PageMap map) {
+        pageUnits = new int[pageCount];
+
+        for (int page = 0; page < pageCount; page++) {
+            pageUnits[page] = map.pageSize(page) / pageSize;
+            if (pageUnits[page] > frameCount) {
+                throw new IllegalArgumentException(String.format(PAGE_TOO_LARGE_ERROR, pageUnits[page], frameCount));
+            }
+        }
     }
 
     /**
      * Initializes the thread components of the system
      */
-    private void initializeThreadComponents(ArrayList<String[]> references) {
+    private void initializeThreadComponents(ReferenceTrace references) {
+        this.references = references;
         NRU nru = new NRU(this);
         reader = new Reader(this, references, nru);
-        inspector = new Inspector(this);
+        inspector = new Inspector(this, reader);
     }
 
     /**
      * Starts the simulation and waits for completion
      */
     public void start() {
+        ScenarioEvent event = new ScenarioEvent();
+        event.begin();
+
+        SimulationMonitor monitor = registerMonitor();
         startThreads();
         waitForThreadCompletion();
+        if (monitor != null) {
+            monitor.unregister();
+        }
+
+        commitScenarioEvent(event);
     }
 
     /**
-     * Starts the reader and inspector threads
+     * Registers the MBean with the live counters of this scenario, if enabled
+     */
+    private SimulationMonitor registerMonitor() {
+        if (!REGISTER_MBEAN) {
+            return null;
+        }
+
+        SimulationMonitor monitor = new SimulationMonitor(this, reader, inspector, references.referenceCount());
+        monitor.register();
+        reader.setMonitored(true);
+        return monitor;
+    }
+
+    /**
+     * Records the finished scenario in the flight recording, if enabled
+     */
+    private void commitScenarioEvent(ScenarioEvent event) {
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.setConfiguration(pageSize, frameCount, pageCount);
+            event.setResults(references.referenceCount(), getHits(), getFaults());
+            event.commit();
+        }
+    }
+
+    /**
+     * Starts the reader and inspector threads. With a deterministic Inspector period the
+     * Reader resets the R bits itself and the inspector thread is not started.
      */
     private void startThreads() {
         reader.start();
-        inspector.start();
+
+        if (options.getInspectorPeriod() == 0) {
+            inspector.start();
+        }
     }
 
     /**
@@ -99,4 +193,18 @@ public class OS {
         System.err.println(THREAD_INTERRUPTED_ERROR + e.getMessage());
         e.printStackTrace();
     }
+
+    /**
+     * Returns the number of hits counted by the reader
+     */
+    public int getHits() {
+        return reader.getHits();
+    }
+
+    /**
+     * Returns the number of page faults counted by the reader
+     */
+    public int getFaults() {
+        return reader.getFaults();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,101 @@
+package memory;
+import java.util.Arrays;
+
+/**
+ * Maps the virtual byte addresses of an address space with several page sizes to pages.
+ * The address space is made of regions (one per matrix, like separate mappings), each
+ * paged with its own page size; pages are numbered region after region.
+ */
+public class PageMap {
+    // Constants
+    private static final int INITIAL_REGIONS = 4;
+
+    // Instance variables
+    private int[] regionStart = new int[INITIAL_REGIONS];
+    private int[] regionEnd = new int[INITIAL_REGIONS];
+    private int[] regionPageSize = new int[INITIAL_REGIONS];
+    private int[] regionFirstPage = new int[INITIAL_REGIONS];
+    private int[] pageSizes = new int[0]; // Size of every page
+    private int regionCount;
+    private int pageCount;
+
+    /**
+     * Returns the map of an address space of the given size paged uniformly
+     */
+    public static PageMap uniform(int totalBytes, int pageSize) {
+        return new PageMap().addRegion(0, totalBytes, pageSize);
+    }
+
+    /**
+     * Adds a region paged with the given page size; regions must not overlap
+     *
+     * @param start First byte address of the region
+     * @param length Bytes of the region
+     */
+    public PageMap addRegion(int start, int length, int pageSize) {
+        if (regionCount == regionStart.length) {
+            int newCapacity = regionCount * 2;
+            regionStart = Arrays.copyOf(regionStart, newCapacity);
+            regionEnd = Arrays.copyOf(regionEnd, newCapacity);
+            regionPageSize = Arrays.copyOf(regionPageSize, newCapacity);
+            regionFirstPage = Arrays.copyOf(regionFirstPage, newCapacity);
+        }
+
+        int pages = (int) Math.ceil((double) length / pageSize);
+        regionStart[regionCount] = start;
+        regionEnd[regionCount] = start + length;
+        regionPageSize[regionCount] = pageSize;
+        regionFirstPage[regionCount] = pageCount;
+        regionCount++;
+
+        pageSizes = Arrays.copyOf(pageSizes, pageCount + pages);
+        Arrays.fill(pageSizes, pageCount, pageCount + pages, pageSize);
+        pageCount += pages;
+        return this;
+    }
+
+    /**
+     * Returns the page that holds a byte address
+     */
+    public int pageOf(int address) {
+        for (int r = 0; r < regionCount; r++) {
+            if (address >= regionStart[r] && address < regionEnd[r]) {
+                return regionFirstPage[r] + (address - regionStart[r]) / regionPageSize[r];
+            }
+        }
+        throw new IllegalArgumentException("Address " + address + " is outside of every region");
+    }
+
+    /**
+     * Returns the size in bytes of a page
+     */
+    public int pageSize(int page) {
+        return pageSizes[page];
+    }
+
+    /**
+     * Returns the smallest page size of the map, the unit in which frames are counted
+     */
+    public int basePageSize() {
+        int base = Integer.MAX_VALUE;
+        for (int r = 0; r < regionCount; r++) {
+            base = Math.min(base, regionPageSize[r]);
+        }
+        return base;
+    }
+
+    /**
+     * Returns the largest page size of the map
+     */
+    public int largestPageSize() {
+        int largest = 0;
+        for (int r = 0; r < regionCount; r++) {
+            largest = Math.max(largest, regionPageSize[r]);
+        }
+        return largest;
+    }
+
+    public int pageCount() {
+        return pageCount;
+    }
+}
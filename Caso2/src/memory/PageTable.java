@@ -1,16 +1,27 @@
 package memory;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 /**
- * Manages the page table for virtual memory mapping
+ * Manages the page table for virtual memory mapping.
+ * R bits are stored as epoch stamps: a page is referenced when its stamp equals the current
+ * epoch, so resetting every R bit is a single increment of the epoch.
  */
 public class PageTable {
     // Constants
     private static final boolean BIT_UNSET = false;
-    private static final boolean REFERENCE_BIT_DEFAULT = false;
+    private static final int NOT_REFERENCED = 0; // Stamp that never equals the epoch
+    private static final int FIRST_EPOCH = 1;
     private static final boolean MODIFIED_BIT_DEFAULT = false;
+    private static final int NO_FRAME = -1;
+    private static final int REFERENCE_FLAG = 1;
+    private static final int MODIFIED_FLAG = 2;
+    private static final int PREFETCHED_FLAG = 4;
 
     // The page table entries
     private Entry[] entries;
+    private int epoch = FIRST_EPOCH; // Stamp of the pages referenced since the last reset
 
     /**
      * Creates a new page table with the specified number of pages and frames
@@ -51,22 +62,47 @@ public class PageTable {
      * Gets the reference bit for a page
      */
     public synchronized boolean getReferenceBit(int n) {
-        return entries[n].R;
+        return entries[n].referenceEpoch == epoch;
     }
 
     /**
      * Sets the reference bit for a page
      */
     public synchronized void setReferenceBit(int n, boolean R) {
-        entries[n].R = R;
+        entries[n].referenceEpoch = R ? epoch : NOT_REFERENCED;
     }
 
     /**
-     * Resets reference bits for all pages
+     * Resets reference bits for all pages in O(1) by starting a new epoch. Before the epoch
+     * wraps around, the stamps are cleared so an old stamp cannot match a new epoch.
      */
     public synchronized void resetReferenceBits() {
+        if (epoch == Integer.MAX_VALUE) {
+            clearReferenceStamps();
+            epoch = FIRST_EPOCH;
+        } else {
+            epoch++;
+        }
+    }
+
+    /**
+     * Marks every page as not referenced; only needed once every 2^31 resets
+     */
+    private void clearReferenceStamps() {
         for (Entry entry : entries) {
-            entry.R = BIT_UNSET;
+            entry.referenceEpoch = NOT_REFERENCED;
+        }
+    }
+
+    /**
+     * Sets the R bit of the first count pages of the list, and their M bit when written[page]
+     * is set, under a single lock, so the Inspector sees all of them or none
+     */
+    public synchronized void setReferencedBits(int[] pages, int count, boolean[] written) {
+        for (int i = 0; i < count; i++) {
+            Entry entry = entries[pages[i]];
+            entry.referenceEpoch = epoch;
+            entry.M |= written[pages[i]];
         }
     }
 
@@ -84,6 +120,20 @@ public class PageTable {
         entries[n].M = M;
     }
 
+    /**
+     * Gets whether a page was prefetched and has not been referenced since
+     */
+    public synchronized boolean getPrefetchedBit(int n) {
+        return entries[n].P;
+    }
+
+    /**
+     * Sets whether a page was prefetched and has not been referenced since
+     */
+    public synchronized void setPrefetchedBit(int n, boolean P) {
+        entries[n].P = P;
+    }
+
     /**
      * Gets the frame assigned to a page
      */
@@ -91,6 +141,66 @@ public class PageTable {
         return entries[n].frame;
     }
 
+    /**
+     * Counts the pages that are in RAM
+     */
+    public synchronized int countResidentPages() {
+        int count = 0;
+
+        for (Entry entry : entries) {
+            if (entry.frame != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Counts the pages that are in RAM and have the modified bit set
+     */
+    public synchronized int countDirtyResidentPages() {
+        int count = 0;
+
+        for (Entry entry : entries) {
+            if (entry.frame != null && entry.M) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Writes every entry as its frame (or -1) and a byte with the R and M bits
+     */
+    synchronized void writeState(DataOutput out) throws IOException {
+        out.writeInt(entries.length);
+
+        for (Entry entry : entries) {
+            out.writeInt(entry.frame == null ? NO_FRAME : entry.frame);
+            out.writeByte((entry.referenceEpoch == epoch ? REFERENCE_FLAG : 0) | (entry.M ? MODIFIED_FLAG : 0)
+                    | (entry.P ? PREFETCHED_FLAG : 0));
+        }
+    }
+
+    /**
+     * Replaces every entry with the ones written by writeState()
+     */
+    synchronized void readState(DataInput in) throws IOException {
+        int pageCount = in.readInt();
+        if (pageCount != entries.length) {
+            throw new IOException("Page table of " + pageCount + " pages, expected " + entries.length);
+        }
+
+        for (Entry entry : entries) {
+            int frame = in.readInt();
+            int flags = in.readByte();
+            entry.frame = frame == NO_FRAME ? null : frame;
+            entry.referenceEpoch = (flags & REFERENCE_FLAG) != 0 ? epoch : NOT_REFERENCED;
+            entry.M = (flags & MODIFIED_FLAG) != 0;
+            entry.P = (flags & PREFETCHED_FLAG) != 0;
+        }
+    }
+
     /**
      * Returns the number of pages in the page table
      */
@@ -98,6 +208,14 @@ public class PageTable {
         return entries.length;
     }
 
+    /**
+     * Checks if a page is in RAM without taking the lock. Frames are only assigned and freed
+     * by the Reader, so the Reader always sees them up to date.
+     */
+    public boolean isLoaded(int page) {
+        return entries[page].frame != null;
+    }
+
     /**
      * Frees the frame assigned to a page
      */
@@ -117,7 +235,8 @@ public class PageTable {
      */
     public class Entry {
         Integer frame = null; // Address in RAM (to a frame)
-        boolean R = REFERENCE_BIT_DEFAULT; // Reference bit
+        int referenceEpoch = NOT_REFERENCED; // Referenced when equal to the epoch of the table
         boolean M = MODIFIED_BIT_DEFAULT; // Modified bit
+        boolean P = BIT_UNSET; // Prefetched and not referenced yet
     }
 }
\ No newline at end of file
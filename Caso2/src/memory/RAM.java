@@ -1,4 +1,7 @@
 package memory;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 /**
  * Represents the physical RAM memory with frames that can be allocated to pages
@@ -10,6 +13,8 @@ public class RAM {
 
     // Frame status array: true = occupied, false = free
     private boolean[] frames;
+    // Written by the Reader only; read without a lock by monitoring
+    private volatile int occupiedFrames;
 
     /**
      * Creates a new RAM with the specified number of frames
@@ -45,12 +50,93 @@ public class RAM {
         return null;
     }
 
+    /**
+     * Allocates a block of consecutive frames aligned to its size, for a page that spans
+     * several base frames (a block of one frame is any free frame)
+     *
+     * @param units Number of base frames of the page
+     * @return The first frame of the block, or null if no aligned block is free
+     */
+    public Integer allocate(int units) {
+        for (int start = 0; start + units <= frames.length; start += units) {
+            if (isBlockFree(start, units)) {
+                for (int i = start; i < start + units; i++) {
+                    markFrameAsOccupied(i);
+                }
+                return start;
+            }
+        }
+        return null;
+    }
+
+    private boolean isBlockFree(int start, int units) {
+        for (int i = start; i < start + units; i++) {
+            if (frames[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Frees the block of frames of an evicted page
+     */
+    public void free(int frame, int units) {
+        for (int i = frame; i < frame + units; i++) {
+            if (frames[i]) {
+                occupiedFrames--;
+            }
+            frames[i] = FRAME_FREE;
+        }
+    }
+
+    /**
+     * Returns the number of occupied frames, which is the number of resident pages when
+     * every page takes one frame
+     */
+    public int getOccupiedFrames() {
+        return occupiedFrames;
+    }
+
     /**
      * Marks the specified frame as occupied
      *
      * @param frameIndex The index of the frame to mark as occupied
      */
     private void markFrameAsOccupied(int frameIndex) {
+        if (!frames[frameIndex]) {
+            occupiedFrames++;
+        }
         frames[frameIndex] = FRAME_OCCUPIED;
     }
+
+    /**
+     * Writes the status of every frame
+     */
+    void writeState(DataOutput out) throws IOException {
+        out.writeInt(frames.length);
+
+        for (boolean frame : frames) {
+            out.writeBoolean(frame);
+        }
+    }
+
+    /**
+     * Restores the status of every frame written by writeState()
+     */
+    void readState(DataInput in) throws IOException {
+        int frameCount = in.readInt();
+        if (frameCount != frames.length) {
+            throw new IOException("RAM of " + frameCount + " frames, expected " + frames.length);
+        }
+
+        int occupied = 0;
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = in.readBoolean() ? FRAME_OCCUPIED : FRAME_FREE;
+            if (frames[i]) {
+                occupied++;
+            }
+        }
+        occupiedFrames = occupied;
+    }
 }
\ No newline at end of file
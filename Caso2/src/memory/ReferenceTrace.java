@@ -0,0 +1,112 @@
+package memory;
+import java.util.Arrays;
+
+/**
+ * Compact in-memory sequence of page references.
+ * Each entry is a run: a page, whether any reference of the run writes it and how many
+ * consecutive references it stands for. An expanded trace is simply a trace whose runs
+ * all have a count of one. A trace with longer runs replays to the same counts as its
+ * expanded form only under a deterministic Inspector period: the Inspector thread can
+ * reset the R bits in the middle of a run, which the later references of the run would
+ * have set again.
+ */
+public class ReferenceTrace {
+    // Constants
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Instance variables
+    private int[] pages = new int[INITIAL_CAPACITY];
+    private boolean[] writes = new boolean[INITIAL_CAPACITY];
+    private int[] counts = new int[INITIAL_CAPACITY];
+    private int size;
+    private long referenceCount;
+    private long fingerprint;
+    private boolean fingerprinted; // Whether fingerprint holds the hash of the current runs
+
+    /**
+     * Appends a single reference
+     */
+    public void add(int page, boolean write) {
+        addRun(page, write, 1);
+    }
+
+    /**
+     * Appends a run of count consecutive references to the same page
+     */
+    public void addRun(int page, boolean write, int count) {
+        ensureCapacity(size + 1);
+        pages[size] = page;
+        writes[size] = write;
+        counts[size] = count;
+        size++;
+        referenceCount += count;
+        fingerprinted = false;
+    }
+
+    /**
+     * Grows the backing arrays when needed
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > pages.length) {
+            int newCapacity = Math.max(capacity, pages.length + (pages.length >> 1));
+            pages = Arrays.copyOf(pages, newCapacity);
+            writes = Arrays.copyOf(writes, newCapacity);
+            counts = Arrays.copyOf(counts, newCapacity);
+        }
+    }
+
+    /**
+     * Returns the number of runs stored
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of references the runs stand for
+     */
+    public long referenceCount() {
+        return referenceCount;
+    }
+
+    /**
+     * Returns the page of a run
+     */
+    public int page(int run) {
+        return pages[run];
+    }
+
+    /**
+     * Checks whether any reference of a run writes the page
+     */
+    public boolean isWrite(int run) {
+        return writes[run];
+    }
+
+    /**
+     * Returns the number of references of a run
+     */
+    public int count(int run) {
+        return counts[run];
+    }
+
+    /**
+     * Returns a hash of every run, used to tell whether two traces are the same. It is
+     * computed on the first call and kept until a run is appended, so checkpoints taken
+     * every few million references do not hash the whole trace each time.
+     */
+    public synchronized long fingerprint() {
+        if (!fingerprinted) {
+            long hash = size;
+
+            for (int run = 0; run < size; run++) {
+                hash = 31 * hash + pages[run];
+                hash = 31 * hash + (writes[run] ? 1 : 0);
+                hash = 31 * hash + counts[run];
+            }
+            fingerprint = hash;
+            fingerprinted = true;
+        }
+        return fingerprint;
+    }
+}
@@ -0,0 +1,348 @@
+package memory;
+import java.io.BufferedWriter;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Distributions collected during a simulation: distance between faults, faults per page,
+ * NRU class of the evicted pages, dirty versus clean evictions, and the page reads and writes
+ * of each backing store with their estimated cost.
+ * All storage is allocated up front, so recording does not allocate.
+ */
+public class SimulationMetrics {
+    // Constants
+    private static final int NRU_CLASS_COUNT = 4;
+    private static final long NO_FAULT_YET = -1;
+    private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+    // Estimated cost of moving one page, in microseconds
+    private static final double DISK_READ_MICROS = 100; // Read from the hard drive (SSD)
+    private static final double SWAP_READ_MICROS = 100;
+    private static final double SWAP_WRITE_MICROS = 120;
+    private static final double DECOMPRESS_MICROS = 2; // Load from the compressed tier
+    private static final double COMPRESS_MICROS = 6; // Store in the compressed tier
+
+    // Instance variables
+    private final Histogram faultInterArrival = new Histogram(); // In references
+    private final int[] pageFaults;
+    private final long[] victimClasses = new long[NRU_CLASS_COUNT];
+    private long dirtyEvictions;
+    private long cleanEvictions;
+    private long lastFaultPosition = NO_FAULT_YET;
+    private long prefetches; // Pages loaded ahead of a reference
+    private long prefetchHits; // Prefetched pages referenced before their eviction
+    private long wastedPrefetches; // Prefetched pages evicted without being referenced
+    private long diskReads; // Clean pages read from the hard drive
+    private long swapReads; // Dirty pages read from SWAP
+    private long swapWrites; // Dirty victims and written back pages copied to SWAP
+    private long compressedLoads; // Dirty pages read from the compressed tier
+    private long compressedStores; // Dirty victims stored in the compressed tier
+    private long writebacks; // Pages moved from the compressed tier to SWAP to make room
+
+    /**
+     * Creates empty metrics for an address space of pageCount pages
+     */
+    public SimulationMetrics(int pageCount) {
+        pageFaults = new int[pageCount];
+    }
+
+    /**
+     * Records a page fault at the given position of the trace (0-based reference index)
+     */
+    public void recordFault(int page, long position) {
+        pageFaults[page]++;
+
+        if (lastFaultPosition != NO_FAULT_YET) {
+            faultInterArrival.record(position - lastFaultPosition);
+        }
+        lastFaultPosition = position;
+    }
+
+    /**
+     * Records an eviction made by NRU
+     *
+     * @param victimClass NRU class (0-3) the victim was taken from
+     * @param dirty Whether the victim had to be written to SWAP
+     */
+    public void recordEviction(int victimClass, boolean dirty) {
+        victimClasses[victimClass]++;
+
+        if (dirty) {
+            dirtyEvictions++;
+        } else {
+            cleanEvictions++;
+        }
+    }
+
+    /**
+     * Records a page loaded by the prefetcher
+     */
+    public void recordPrefetch() {
+        prefetches++;
+    }
+
+    /**
+     * Records the first reference to a prefetched page
+     */
+    public void recordPrefetchHit() {
+        prefetchHits++;
+    }
+
+    /**
+     * Records the eviction of a prefetched page that was never referenced
+     */
+    public void recordWastedPrefetch() {
+        wastedPrefetches++;
+    }
+
+    /**
+     * Records a clean page read from the hard drive
+     */
+    public void recordDiskRead() {
+        diskReads++;
+    }
+
+    /**
+     * Records a dirty page read from SWAP
+     */
+    public void recordSwapRead() {
+        swapReads++;
+    }
+
+    /**
+     * Records a dirty victim copied to SWAP
+     */
+    public void recordSwapWrite() {
+        swapWrites++;
+    }
+
+    /**
+     * Records a dirty page read from the compressed tier
+     */
+    public void recordCompressedLoad() {
+        compressedLoads++;
+    }
+
+    /**
+     * Records a dirty victim stored in the compressed tier
+     */
+    public void recordCompressedStore() {
+        compressedStores++;
+    }
+
+    /**
+     * Records a page moved from the compressed tier to SWAP, which is also a swap write
+     */
+    public void recordWriteback() {
+        writebacks++;
+        swapWrites++;
+    }
+
+    /**
+     * Returns the estimated microseconds spent reading from the hard drive
+     */
+    public double getDiskMicros() {
+        return diskReads * DISK_READ_MICROS;
+    }
+
+    /**
+     * Returns the estimated microseconds spent reading from and writing to SWAP
+     */
+    public double getSwapMicros() {
+        return swapReads * SWAP_READ_MICROS + swapWrites * SWAP_WRITE_MICROS;
+    }
+
+    /**
+     * Returns the estimated microseconds spent compressing and decompressing pages
+     */
+    public double getCompressedMicros() {
+        return compressedLoads * DECOMPRESS_MICROS + compressedStores * COMPRESS_MICROS;
+    }
+
+    public long getDiskReads() {
+        return diskReads;
+    }
+
+    public long getSwapReads() {
+        return swapReads;
+    }
+
+    public long getSwapWrites() {
+        return swapWrites;
+    }
+
+    public long getCompressedLoads() {
+        return compressedLoads;
+    }
+
+    public long getCompressedStores() {
+        return compressedStores;
+    }
+
+    public long getWritebacks() {
+        return writebacks;
+    }
+
+    public long getPrefetches() {
+        return prefetches;
+    }
+
+    public long getPrefetchHits() {
+        return prefetchHits;
+    }
+
+    public long getWastedPrefetches() {
+        return wastedPrefetches;
+    }
+
+    /**
+     * Returns the position of the last fault recorded, or -1 before the first one
+     */
+    public long getLastFaultPosition() {
+        return lastFaultPosition;
+    }
+
+    public Histogram getFaultInterArrival() {
+        return faultInterArrival;
+    }
+
+    public int getPageFaults(int page) {
+        return pageFaults[page];
+    }
+
+    public long getVictimClassCount(int victimClass) {
+        return victimClasses[victimClass];
+    }
+
+    public long getDirtyEvictions() {
+        return dirtyEvictions;
+    }
+
+    public long getCleanEvictions() {
+        return cleanEvictions;
+    }
+
+    /**
+     * Writes every counter so that a resumed simulation continues from them
+     */
+    void writeState(DataOutput out) throws IOException {
+        faultInterArrival.writeState(out);
+        out.writeInt(pageFaults.length);
+        for (int faults : pageFaults) {
+            out.writeInt(faults);
+        }
+        for (long count : victimClasses) {
+            out.writeLong(count);
+        }
+        out.writeLong(dirtyEvictions);
+        out.writeLong(cleanEvictions);
+        out.writeLong(lastFaultPosition);
+        out.writeLong(prefetches);
+        out.writeLong(prefetchHits);
+        out.writeLong(wastedPrefetches);
+        out.writeLong(diskReads);
+        out.writeLong(swapReads);
+        out.writeLong(swapWrites);
+        out.writeLong(compressedLoads);
+        out.writeLong(compressedStores);
+        out.writeLong(writebacks);
+    }
+
+    /**
+     * Replaces every counter with the ones written by writeState()
+     */
+    void readState(DataInput in) throws IOException {
+        faultInterArrival.readState(in);
+        if (in.readInt() != pageFaults.length) {
+            throw new IOException("Metrics of a different address space");
+        }
+        for (int page = 0; page < pageFaults.length; page++) {
+            pageFaults[page] = in.readInt();
+        }
+        for (int c = 0; c < NRU_CLASS_COUNT; c++) {
+            victimClasses[c] = in.readLong();
+        }
+        dirtyEvictions = in.readLong();
+        cleanEvictions = in.readLong();
+        lastFaultPosition = in.readLong();
+        prefetches = in.readLong();
+        prefetchHits = in.readLong();
+        wastedPrefetches = in.readLong();
+        diskReads = in.readLong();
+        swapReads = in.readLong();
+        swapWrites = in.readLong();
+        compressedLoads = in.readLong();
+        compressedStores = in.readLong();
+        writebacks = in.readLong();
+    }
+
+    /**
+     * Writes the metrics of one scenario as "key value..." lines
+     */
+    public void write(BufferedWriter writer, int pageSize, int frameCount) throws IOException {
+        writer.write("scenario page_size=" + pageSize + " frames=" + frameCount);
+        writer.newLine();
+        writeInterArrival(writer);
+        writeEvictions(writer);
+        writePaging(writer);
+        writePageFaults(writer);
+    }
+
+    private void writeInterArrival(BufferedWriter writer) throws IOException {
+        StringBuilder line = new StringBuilder("fault_interarrival");
+        line.append(" count=").append(faultInterArrival.getTotalCount())
+                .append(" min=").append(faultInterArrival.getMin())
+                .append(" mean=").append(String.format("%.2f", faultInterArrival.getMean()));
+
+        for (double percentile : PERCENTILES) {
+            line.append(" p").append(formatPercentile(percentile)).append('=')
+                    .append(faultInterArrival.percentile(percentile));
+        }
+        line.append(" max=").append(faultInterArrival.getMax());
+
+        writer.write(line.toString());
+        writer.newLine();
+    }
+
+    private String formatPercentile(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+    }
+
+    private void writeEvictions(BufferedWriter writer) throws IOException {
+        StringBuilder line = new StringBuilder("victim_class");
+        for (int c = 0; c < NRU_CLASS_COUNT; c++) {
+            line.append(' ').append(c).append('=').append(victimClasses[c]);
+        }
+        writer.write(line.toString());
+        writer.newLine();
+
+        writer.write("evictions dirty=" + dirtyEvictions + " clean=" + cleanEvictions);
+        writer.newLine();
+
+        writer.write("prefetch issued=" + prefetches + " hits=" + prefetchHits + " wasted=" + wastedPrefetches);
+        writer.newLine();
+    }
+
+    private void writePaging(BufferedWriter writer) throws IOException {
+        writer.write("paging disk_reads=" + diskReads + " swap_reads=" + swapReads + " swap_writes=" + swapWrites
+                + " compressed_loads=" + compressedLoads + " compressed_stores=" + compressedStores
+                + " writebacks=" + writebacks);
+        writer.newLine();
+
+        writer.write(String.format("paging_cost_us disk=%.0f swap=%.0f compressed=%.0f", getDiskMicros(),
+                getSwapMicros(), getCompressedMicros()));
+        writer.newLine();
+    }
+
+    private void writePageFaults(BufferedWriter writer) throws IOException {
+        StringBuilder line = new StringBuilder("page_faults");
+        for (int page = 0; page < pageFaults.length; page++) {
+            if (pageFaults[page] > 0) {
+                line.append(' ').append(page).append(':').append(pageFaults[page]);
+            }
+        }
+        writer.write(line.toString());
+        writer.newLine();
+    }
+}
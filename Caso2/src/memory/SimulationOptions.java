@@ -0,0 +1,228 @@
+package memory;
+import memory.prefetch.PrefetchPolicy;
+import results.ResultSink;
+
+/**
+ * Optional settings of a simulation. The defaults reproduce the original simulator.
+ */
+public class SimulationOptions {
+    // Defaults
+    private static final int TIME_SERIES_DISABLED = 0;
+    private static final long CHECKPOINTS_DISABLED = 0;
+    private static final String PREFETCH_DEPTH_ERROR = "Prefetch depth must be at least 1, was %d";
+
+    // Instance variables
+    private int timeSeriesWindow = TIME_SERIES_DISABLED;
+    private ResultSink resultSink; // null: results are only printed
+    private String scenario = "";
+    private String traceDescription = "";
+    private long checkpointInterval = CHECKPOINTS_DISABLED;
+    private PrefetchPolicy prefetchPolicy = PrefetchPolicy.NONE;
+    private int prefetchDepth;
+    private PageMap pageMap; // null: one page size for the whole address space
+    private long compressedSwapBytes; // 0: no compressed tier
+    private double compressionRatio = 1;
+    private int batchRuns; // 0: bits are set on every reference
+    private long inspectorPeriod; // 0: the Inspector thread resets R bits every millisecond
+    private boolean evictionLog;
+    private boolean reportPrinted = true;
+    private boolean metricsSaved = true;
+
+    /**
+     * Returns a copy of these options, so a caller's options can be adjusted without changing them
+     */
+    public SimulationOptions copy() {
+        SimulationOptions copy = new SimulationOptions();
+        copy.timeSeriesWindow = timeSeriesWindow;
+        copy.resultSink = resultSink;
+        copy.scenario = scenario;
+        copy.traceDescription = traceDescription;
+        copy.checkpointInterval = checkpointInterval;
+        copy.prefetchPolicy = prefetchPolicy;
+        copy.prefetchDepth = prefetchDepth;
+        copy.pageMap = pageMap;
+        copy.compressedSwapBytes = compressedSwapBytes;
+        copy.compressionRatio = compressionRatio;
+        copy.batchRuns = batchRuns;
+        copy.inspectorPeriod = inspectorPeriod;
+        copy.evictionLog = evictionLog;
+        copy.reportPrinted = reportPrinted;
+        copy.metricsSaved = metricsSaved;
+        return copy;
+    }
+
+    /**
+     * Sets the number of references per window of the time series (0, the default, disables it)
+     */
+    public SimulationOptions withTimeSeriesWindow(int references) {
+        this.timeSeriesWindow = references;
+        return this;
+    }
+
+    /**
+     * Sets where the result of the scenario is collected and how it is identified
+     *
+     * @param scenario Group the scenario belongs to (e.g. "sweep")
+     * @param traceDescription Description of the trace (traversal, layout, format)
+     */
+    public SimulationOptions withResults(ResultSink resultSink, String scenario, String traceDescription) {
+        this.resultSink = resultSink;
+        this.scenario = scenario;
+        this.traceDescription = traceDescription;
+        return this;
+    }
+
+    /**
+     * Saves a checkpoint every given number of references and resumes from it when the same
+     * scenario is run again (0 disables checkpoints)
+     */
+    public SimulationOptions withCheckpointInterval(long references) {
+        this.checkpointInterval = references;
+        return this;
+    }
+
+    /**
+     * Loads extra pages on every fault with the given read-ahead policy
+     *
+     * @param depth Most pages prefetched per fault; at least 1 unless the policy is NONE
+     */
+    public SimulationOptions withPrefetch(PrefetchPolicy policy, int depth) {
+        if (policy != PrefetchPolicy.NONE && depth < 1) {
+            throw new IllegalArgumentException(String.format(PREFETCH_DEPTH_ERROR, depth));
+        }
+
+        this.prefetchPolicy = policy;
+        this.prefetchDepth = depth;
+        return this;
+    }
+
+    /**
+     * Simulates an address space with several page sizes. The page size of the OS is then the
+     * base page size, and frames are counted in base pages.
+     */
+    public SimulationOptions withPageMap(PageMap pageMap) {
+        this.pageMap = pageMap;
+        return this;
+    }
+
+    /**
+     * Stores dirty victims in a compressed pool in RAM before SWAP, written back to SWAP
+     * oldest first when the pool is full
+     *
+     * @param capacityBytes Bytes of RAM the pool may use (0 disables it)
+     * @param compressionRatio Uncompressed size of a page divided by its compressed size
+     */
+    public SimulationOptions withCompressedSwap(long capacityBytes, double compressionRatio) {
+        this.compressedSwapBytes = capacityBytes;
+        this.compressionRatio = compressionRatio;
+        return this;
+    }
+
+    /**
+     * Replays the trace in blocks of the given number of runs (0 sets the bits on every
+     * reference). Hits only record their R and M bits in the Reader, which sets them in the
+     * page table once per block and before every fault and sleep, so a hit becomes visible
+     * when its block is published. Results are identical to the per-reference Reader only
+     * with withInspectorPeriod(); the Inspector thread may reset the bits in mid-block.
+     */
+    public SimulationOptions withBatchRuns(int runs) {
+        this.batchRuns = runs;
+        return this;
+    }
+
+    /**
+     * Replaces the Inspector thread with a reset of the R bits by the Reader every given
+     * number of references, which makes the simulation deterministic (0 keeps the thread).
+     * Collapsed and address traces replay runs, which give the counts of the expanded
+     * trace only with a period; the thread's resets in mid-run are lost.
+     */
+    public SimulationOptions withInspectorPeriod(long references) {
+        this.inspectorPeriod = references;
+        return this;
+    }
+
+    /**
+     * Records every eviction in OS.evictionLog
+     */
+    public SimulationOptions withEvictionLog(boolean record) {
+        this.evictionLog = record;
+        return this;
+    }
+
+    /**
+     * Selects whether the Reader prints its report when the scenario ends
+     */
+    public SimulationOptions withReportPrinted(boolean printed) {
+        this.reportPrinted = printed;
+        return this;
+    }
+
+    /**
+     * Selects whether the Reader appends its metrics to output/metrics.txt when the scenario
+     * ends. Processes running scenarios at the same time should not share that file.
+     */
+    public SimulationOptions withMetricsSaved(boolean saved) {
+        this.metricsSaved = saved;
+        return this;
+    }
+
+    public boolean isMetricsSaved() {
+        return metricsSaved;
+    }
+
+    public boolean isReportPrinted() {
+        return reportPrinted;
+    }
+
+    public long getInspectorPeriod() {
+        return inspectorPeriod;
+    }
+
+    public boolean isEvictionLogged() {
+        return evictionLog;
+    }
+
+    public int getBatchRuns() {
+        return batchRuns;
+    }
+
+    public long getCompressedSwapBytes() {
+        return compressedSwapBytes;
+    }
+
+    public double getCompressionRatio() {
+        return compressionRatio;
+    }
+
+    public PageMap getPageMap() {
+        return pageMap;
+    }
+
+    public PrefetchPolicy getPrefetchPolicy() {
+        return prefetchPolicy;
+    }
+
+    public int getPrefetchDepth() {
+        return prefetchDepth;
+    }
+
+    public long getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    public ResultSink getResultSink() {
+        return resultSink;
+    }
+
+    public String getScenario() {
+        return scenario;
+    }
+
+    public String getTraceDescription() {
+        return traceDescription;
+    }
+
+    public int getTimeSeriesWindow() {
+        return timeSeriesWindow;
+    }
+}
@@ -0,0 +1,213 @@
+package memory;
+import java.io.BufferedWriter;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Per-window counters of a simulation: for each window of a fixed number of references,
+ * the hits, faults and evictions inside it, the distinct pages it touched (working set)
+ * and the dirty pages resident when it closed.
+ * Columns are kept as separate primitive arrays and written as CSV.
+ */
+public class TimeSeries {
+    // Constants
+    private static final int INITIAL_WINDOWS = 256;
+    private static final String HEADER = "window,first_reference,references,hits,faults,evictions,"
+            + "working_set,dirty_resident";
+
+    // Instance variables
+    private final int windowSize;
+    private final int[] pageWindow; // Last window in which each page was touched, plus one
+    private long[] hits = new long[INITIAL_WINDOWS];
+    private long[] faults = new long[INITIAL_WINDOWS];
+    private long[] evictions = new long[INITIAL_WINDOWS];
+    private int[] workingSet = new int[INITIAL_WINDOWS];
+    private int[] dirtyResident = new int[INITIAL_WINDOWS];
+    private long[] references = new long[INITIAL_WINDOWS];
+    private int windowCount;
+    private int window; // Index of the open window
+    private long windowEnd; // Position where the open window ends
+    private long evictionsAtWindowStart;
+
+    /**
+     * Creates an empty time series
+     *
+     * @param windowSize References per window
+     * @param pageCount Number of pages of the address space
+     */
+    public TimeSeries(int windowSize, int pageCount) {
+        this.windowSize = windowSize;
+        this.pageWindow = new int[pageCount];
+        this.windowEnd = windowSize;
+        this.windowCount = 1;
+    }
+
+    /**
+     * Records a run of count references to a page starting at the given position.
+     * A fault, if any, is charged to the first reference of the run. A window that ends
+     * where the run starts must already be closed with closeWindow(), before the run was
+     * processed; windows that end inside the run are closed here, since the rest of a run
+     * changes no state.
+     *
+     * @param os Operating system used to sample the window state when a window closes
+     */
+    public void recordRun(long position, int page, int count, boolean fault, OS os) {
+        long remaining = count;
+        long current = position;
+        boolean firstReference = true;
+
+        while (remaining > 0) {
+            if (current >= windowEnd) {
+                closeWindow(os);
+            }
+
+            long inWindow = Math.min(remaining, windowEnd - current);
+            long windowFaults = firstReference && fault ? 1 : 0;
+            faults[window] += windowFaults;
+            hits[window] += inWindow - windowFaults;
+            references[window] += inWindow;
+            touch(page);
+
+            firstReference = false;
+            current += inWindow;
+            remaining -= inWindow;
+        }
+    }
+
+    /**
+     * Checks if recording a run starting at the given position closes the open window,
+     * which samples the state of the OS
+     */
+    public boolean closesWindow(long position, int count) {
+        return position + count > windowEnd;
+    }
+
+    /**
+     * Checks if the open window ends at or before the given position, so it must be closed
+     * before the reference at that position is processed
+     */
+    public boolean isWindowFinished(long position) {
+        return position >= windowEnd;
+    }
+
+    /**
+     * Counts a page in the working set of the open window once
+     */
+    private void touch(int page) {
+        if (pageWindow[page] != window + 1) {
+            pageWindow[page] = window + 1;
+            workingSet[window]++;
+        }
+    }
+
+    /**
+     * Samples the state at the end of the open window and opens the next one
+     */
+    public void closeWindow(OS os) {
+        sampleWindowState(os);
+
+        window++;
+        windowCount++;
+        windowEnd += windowSize;
+        ensureCapacity(windowCount);
+    }
+
+    /**
+     * Stores the evictions and dirty resident pages of the open window
+     */
+    private void sampleWindowState(OS os) {
+        long totalEvictions = os.metrics.getDirtyEvictions() + os.metrics.getCleanEvictions();
+        evictions[window] = totalEvictions - evictionsAtWindowStart;
+        evictionsAtWindowStart = totalEvictions;
+        dirtyResident[window] = os.pageTable.countDirtyResidentPages();
+    }
+
+    /**
+     * Closes the last window; must be called once after the last reference
+     */
+    public void finish(OS os) {
+        sampleWindowState(os);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > hits.length) {
+            int newCapacity = hits.length * 2;
+            hits = Arrays.copyOf(hits, newCapacity);
+            faults = Arrays.copyOf(faults, newCapacity);
+            evictions = Arrays.copyOf(evictions, newCapacity);
+            workingSet = Arrays.copyOf(workingSet, newCapacity);
+            dirtyResident = Arrays.copyOf(dirtyResident, newCapacity);
+            references = Arrays.copyOf(references, newCapacity);
+        }
+    }
+
+    /**
+     * Writes the windows recorded so far and the state of the open one
+     */
+    void writeState(DataOutput out) throws IOException {
+        out.writeInt(windowSize);
+        out.writeInt(windowCount);
+        out.writeLong(windowEnd);
+        out.writeLong(evictionsAtWindowStart);
+
+        for (int w = 0; w < windowCount; w++) {
+            out.writeLong(references[w]);
+            out.writeLong(hits[w]);
+            out.writeLong(faults[w]);
+            out.writeLong(evictions[w]);
+            out.writeInt(workingSet[w]);
+            out.writeInt(dirtyResident[w]);
+        }
+        for (int lastWindow : pageWindow) {
+            out.writeInt(lastWindow);
+        }
+    }
+
+    /**
+     * Replaces the series with the one written by writeState()
+     */
+    void readState(DataInput in) throws IOException {
+        if (in.readInt() != windowSize) {
+            throw new IOException("Time series with a different window size");
+        }
+        windowCount = in.readInt();
+        window = windowCount - 1;
+        windowEnd = in.readLong();
+        evictionsAtWindowStart = in.readLong();
+
+        while (hits.length < windowCount) {
+            ensureCapacity(hits.length + 1);
+        }
+        for (int w = 0; w < windowCount; w++) {
+            references[w] = in.readLong();
+            hits[w] = in.readLong();
+            faults[w] = in.readLong();
+            evictions[w] = in.readLong();
+            workingSet[w] = in.readInt();
+            dirtyResident[w] = in.readInt();
+        }
+        for (int page = 0; page < pageWindow.length; page++) {
+            pageWindow[page] = in.readInt();
+        }
+    }
+
+    /**
+     * Writes the series as CSV, one line per window
+     */
+    public void write(BufferedWriter writer) throws IOException {
+        writer.write(HEADER);
+        writer.newLine();
+
+        StringBuilder line = new StringBuilder();
+        for (int w = 0; w < windowCount; w++) {
+            line.setLength(0);
+            line.append(w).append(',').append((long) w * windowSize).append(',').append(references[w])
+                    .append(',').append(hits[w]).append(',').append(faults[w]).append(',').append(evictions[w])
+                    .append(',').append(workingSet[w]).append(',').append(dirtyResident[w]);
+            writer.write(line.toString());
+            writer.newLine();
+        }
+    }
+}
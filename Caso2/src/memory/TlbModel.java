@@ -0,0 +1,93 @@
+package memory;
+import java.util.Arrays;
+
+/**
+ * Translation lookaside buffer with separate fully associative LRU arrays for base pages and
+ * larger pages, as in x86 data TLBs. It replays a trace of pages and counts the references
+ * whose translation is not cached. The reach is the memory the entries can map at once.
+ */
+public class TlbModel {
+    // Constants
+    private static final int EMPTY = -1;
+
+    // Instance variables
+    private final int[] baseEntries; // Most recently used first
+    private final int[] largeEntries;
+    private long references;
+    private long misses;
+    private final int basePageSize;
+    private int largePageSize;
+
+    /**
+     * Creates an empty TLB
+     *
+     * @param baseEntryCount Entries for base pages
+     * @param largeEntryCount Entries for pages larger than the base page size
+     */
+    public TlbModel(int baseEntryCount, int largeEntryCount, int basePageSize) {
+        this.basePageSize = basePageSize;
+        baseEntries = new int[baseEntryCount];
+        largeEntries = new int[largeEntryCount];
+        Arrays.fill(baseEntries, EMPTY);
+        Arrays.fill(largeEntries, EMPTY);
+    }
+
+    /**
+     * Replays a trace whose pages are sized as in the map. Consecutive references of a run
+     * hit the entry loaded by the first one.
+     */
+    public void replay(ReferenceTrace trace, PageMap map) {
+        largePageSize = map.largestPageSize();
+
+        for (int run = 0; run < trace.size(); run++) {
+            int page = trace.page(run);
+            boolean large = map.pageSize(page) > basePageSize;
+
+            if (!lookup(large ? largeEntries : baseEntries, page)) {
+                misses++;
+            }
+            references += trace.count(run);
+        }
+    }
+
+    /**
+     * Looks a page up and moves it to the front, loading it over the least recently used entry on a miss
+     *
+     * @return Whether the page was cached
+     */
+    private boolean lookup(int[] entries, int page) {
+        if (entries.length == 0) {
+            return false;
+        }
+
+        int position = entries.length - 1;
+        boolean hit = false;
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i] == page) {
+                position = i;
+                hit = true;
+                break;
+            }
+        }
+
+        System.arraycopy(entries, 0, entries, 1, position);
+        entries[0] = page;
+        return hit;
+    }
+
+    public long getReferences() {
+        return references;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the bytes the TLB can map at once; large entries only count if the map has large pages
+     */
+    public long getReach() {
+        long largeReach = largePageSize > basePageSize ? (long) largeEntries.length * largePageSize : 0;
+        return (long) baseEntries.length * basePageSize + largeReach;
+    }
+}
@@ -0,0 +1,44 @@
+package memory.events;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for a page evicted by NRU
+ */
+@Name("caso2.Eviction")
+@Label("Page Eviction")
+@Category({ "Paging Simulator" })
+@Description("NRU freed a frame by evicting a page")
+@StackTrace(false)
+public class EvictionEvent extends jdk.jfr.Event {
+    @Label("Victim Page")
+    int victimPage;
+
+    @Label("Frame")
+    int frame;
+
+    @Label("NRU Class")
+    @Description("0: not referenced, not modified ... 3: referenced, modified")
+    int nruClass;
+
+    @Label("Dirty")
+    boolean dirty;
+
+    /**
+     * Commits an event if JFR records this type; costs a flag check otherwise
+     */
+    public static void emit(int victimPage, int frame, int nruClass, boolean dirty) {
+        EvictionEvent event = new EvictionEvent();
+
+        if (event.shouldCommit()) {
+            event.victimPage = victimPage;
+            event.frame = frame;
+            event.nruClass = nruClass;
+            event.dirty = dirty;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package memory.events;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR duration event for one reset of the reference bits by the Inspector.
+ * The duration includes waiting for the page table lock.
+ */
+@Name("caso2.InspectorSweep")
+@Label("Inspector Sweep")
+@Category({ "Paging Simulator" })
+@Description("The Inspector reset the reference bits of the page table")
+@StackTrace(false)
+public class InspectorSweepEvent extends jdk.jfr.Event {
+    @Label("Pages")
+    @Description("Number of entries in the page table")
+    int pageCount;
+
+    public void setPageCount(int pageCount) {
+        this.pageCount = pageCount;
+    }
+}
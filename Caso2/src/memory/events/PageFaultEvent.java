@@ -0,0 +1,41 @@
+package memory.events;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for a page fault handled by the Reader
+ */
+@Name("caso2.PageFault")
+@Label("Page Fault")
+@Category({ "Paging Simulator" })
+@Description("A referenced page was not in RAM")
+@StackTrace(false)
+public class PageFaultEvent extends jdk.jfr.Event {
+    @Label("Page")
+    int page;
+
+    @Label("Trace Position")
+    @Description("Index of the faulting reference in the trace")
+    long position;
+
+    @Label("From SWAP")
+    @Description("Whether the page is loaded from SWAP instead of the hard drive")
+    boolean fromSwap;
+
+    /**
+     * Commits an event if JFR records this type; costs a flag check otherwise
+     */
+    public static void emit(int page, long position, boolean fromSwap) {
+        PageFaultEvent event = new PageFaultEvent();
+
+        if (event.shouldCommit()) {
+            event.page = page;
+            event.position = position;
+            event.fromSwap = fromSwap;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package memory.events;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR duration event spanning a whole simulation scenario, from the start of the
+ * Reader and Inspector threads until both finish
+ */
+@Name("caso2.Scenario")
+@Label("Simulation Scenario")
+@Category({ "Paging Simulator" })
+@Description("One run of the paging simulator")
+@StackTrace(false)
+public class ScenarioEvent extends jdk.jfr.Event {
+    @Label("Page Size")
+    int pageSize;
+
+    @Label("Frames")
+    int frameCount;
+
+    @Label("Pages")
+    int pageCount;
+
+    @Label("References")
+    long references;
+
+    @Label("Hits")
+    long hits;
+
+    @Label("Faults")
+    long faults;
+
+    /**
+     * Sets the configuration of the scenario
+     */
+    public void setConfiguration(int pageSize, int frameCount, int pageCount) {
+        this.pageSize = pageSize;
+        this.frameCount = frameCount;
+        this.pageCount = pageCount;
+    }
+
+    /**
+     * Sets the outcome of the scenario
+     */
+    public void setResults(long references, long hits, long faults) {
+        this.references = references;
+        this.hits = hits;
+        this.faults = faults;
+    }
+}
@@ -0,0 +1,31 @@
+package memory.events;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for a modified page written to SWAP
+ */
+@Name("caso2.SwapWrite")
+@Label("Swap Write")
+@Category({ "Paging Simulator" })
+@Description("A modified victim page was copied to SWAP")
+@StackTrace(false)
+public class SwapWriteEvent extends jdk.jfr.Event {
+    @Label("Page")
+    int page;
+
+    /**
+     * Commits an event if JFR records this type; costs a flag check otherwise
+     */
+    public static void emit(int page) {
+        SwapWriteEvent event = new SwapWriteEvent();
+
+        if (event.shouldCommit()) {
+            event.page = page;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package memory.jmx;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import memory.OS;
+import memory.threads.Inspector;
+import memory.threads.Reader;
+
+/**
+ * MBean of one scenario, registered on the platform MBean server while the scenario runs.
+ * It only reads counters the threads already keep or publish, so it adds no work to the
+ * Reader's loop and never takes the page table lock the Reader's accessors use.
+ */
+public class SimulationMonitor implements SimulationMonitorMXBean {
+    // Constants
+    private static final String OBJECT_NAME_FORMAT = "caso2:type=Simulation,pageSize=%d,frames=%d,run=%d";
+    private static final String REGISTER_ERROR = "Error registering the simulation MBean: ";
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    // Scenarios registered so far, to give every MBean a unique name
+    private static final AtomicLong RUNS = new AtomicLong();
+
+    // Instance variables
+    private final OS os;
+    private final Reader reader;
+    private final Inspector inspector;
+    private final long totalReferences;
+    private final long startNanos = System.nanoTime();
+    private ObjectName name; // null when not registered
+
+    /**
+     * Creates the monitor of a scenario
+     */
+    public SimulationMonitor(OS os, Reader reader, Inspector inspector, long totalReferences) {
+        this.os = os;
+        this.reader = reader;
+        this.inspector = inspector;
+        this.totalReferences = totalReferences;
+    }
+
+    /**
+     * Registers this MBean on the platform MBean server; a failure is reported and ignored
+     */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            name = new ObjectName(String.format(OBJECT_NAME_FORMAT, os.pageSize, os.frameCount,
+                    RUNS.incrementAndGet()));
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            System.err.println(REGISTER_ERROR + e.getMessage());
+            e.printStackTrace();
+            name = null;
+        }
+    }
+
+    /**
+     * Removes this MBean from the platform MBean server, if it was registered
+     */
+    public void unregister() {
+        if (name == null) {
+            return;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            System.err.println(REGISTER_ERROR + e.getMessage());
+            e.printStackTrace();
+        }
+        name = null;
+    }
+
+    @Override
+    public int getPageSize() {
+        return os.pageSize;
+    }
+
+    @Override
+    public int getFrameCount() {
+        return os.frameCount;
+    }
+
+    @Override
+    public int getPageCount() {
+        return os.pageCount;
+    }
+
+    @Override
+    public long getTotalReferences() {
+        return totalReferences;
+    }
+
+    @Override
+    public long getProcessedReferences() {
+        return reader.getReportedReferences();
+    }
+
+    @Override
+    public long getHits() {
+        return reader.getReportedHits();
+    }
+
+    @Override
+    public long getFaults() {
+        return reader.getReportedFaults();
+    }
+
+    @Override
+    public double getFaultRate() {
+        long processed = reader.getReportedReferences();
+        return processed == 0 ? 0 : (double) reader.getReportedFaults() / processed;
+    }
+
+    @Override
+    public double getReferencesPerSecond() {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed == 0 ? 0 : reader.getReportedReferences() * NANOS_PER_SECOND / elapsed;
+    }
+
+    @Override
+    public int getResidentPages() {
+        return os.pageUnits == null ? os.ram.getOccupiedFrames() : reader.getReportedResidentPages();
+    }
+
+    @Override
+    public int getDirtyResidentPages() {
+        return reader.getReportedDirtyPages();
+    }
+
+    @Override
+    public int getSwapPages() {
+        return os.swap.size();
+    }
+
+    @Override
+    public long getCompressedSwapBytes() {
+        return os.compressedSwap == null ? 0 : os.compressedSwap.getUsedBytes();
+    }
+
+    @Override
+    public long getInspectorSweeps() {
+        return inspector.getSweeps();
+    }
+}
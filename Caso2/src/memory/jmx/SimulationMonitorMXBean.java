@@ -0,0 +1,48 @@
+package memory.jmx;
+
+/**
+ * Live counters of a running scenario, exposed over JMX (e.g. to JConsole or VisualVM).
+ * Reader counters are refreshed every time the Reader pauses, every 10000 references.
+ */
+public interface SimulationMonitorMXBean {
+    int getPageSize();
+
+    int getFrameCount();
+
+    int getPageCount();
+
+    long getTotalReferences();
+
+    long getProcessedReferences();
+
+    long getHits();
+
+    long getFaults();
+
+    /**
+     * Returns the faults per processed reference
+     */
+    double getFaultRate();
+
+    /**
+     * Returns the processed references per second since the scenario started
+     */
+    double getReferencesPerSecond();
+
+    /**
+     * Returns the pages in RAM; live when every page takes one frame, refreshed at the
+     * Reader's pauses with several page sizes
+     */
+    int getResidentPages();
+
+    /**
+     * Returns the pages in RAM with the modified bit set, refreshed at the Reader's pauses
+     */
+    int getDirtyResidentPages();
+
+    int getSwapPages();
+
+    long getCompressedSwapBytes();
+
+    long getInspectorSweeps();
+}
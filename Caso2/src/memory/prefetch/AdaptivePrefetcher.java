@@ -0,0 +1,62 @@
+package memory.prefetch;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Read-ahead window in the style of the Linux page cache: a fault right after the pages
+ * read ahead last time means the access is sequential, so the window doubles (up to the
+ * maximum); any other fault resets it. Every prefetched page evicted unused halves it.
+ */
+public class AdaptivePrefetcher implements Prefetcher {
+    // Constants
+    private static final int MIN_WINDOW = 1;
+    private static final int NO_PAGE = -2;
+
+    // Instance variables
+    private final int maxWindow;
+    private int window = MIN_WINDOW;
+    private int nextExpected = NO_PAGE; // First page after the last read-ahead
+
+    public AdaptivePrefetcher(int maxWindow) {
+        this.maxWindow = Math.max(MIN_WINDOW, maxWindow);
+    }
+
+    @Override
+    public int select(int faultPage, int[] candidates) {
+        if (faultPage == nextExpected) {
+            window = Math.min(window * 2, maxWindow);
+        } else {
+            window = MIN_WINDOW;
+        }
+
+        for (int i = 0; i < window; i++) {
+            candidates[i] = faultPage + i + 1;
+        }
+        nextExpected = faultPage + window + 1;
+        return window;
+    }
+
+    @Override
+    public void onWastedPrefetch(int page) {
+        window = Math.max(MIN_WINDOW, window / 2);
+    }
+
+    /**
+     * Writes the current window and the page that would grow it
+     */
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(window);
+        out.writeInt(nextExpected);
+    }
+
+    /**
+     * Restores the window written by writeState()
+     */
+    @Override
+    public void readState(DataInput in) throws IOException {
+        window = in.readInt();
+        nextExpected = in.readInt();
+    }
+}
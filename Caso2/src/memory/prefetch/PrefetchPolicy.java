@@ -0,0 +1,58 @@
+package memory.prefetch;
+
+/**
+ * Read-ahead policies of the fault path. The depth bounds the pages loaded per fault.
+ */
+public enum PrefetchPolicy {
+    /**
+     * Loads only the faulting page, as the original simulator
+     */
+    NONE {
+        @Override
+        public Prefetcher create(int depth) {
+            return null;
+        }
+    },
+
+    /**
+     * Loads the depth pages that follow the faulting page
+     */
+    SEQUENTIAL {
+        @Override
+        public Prefetcher create(int depth) {
+            return new SequentialPrefetcher(depth);
+        }
+    },
+
+    /**
+     * Follows the strided streams of faults (one per matrix region being walked) and loads
+     * depth strides ahead once a stride repeats
+     */
+    STRIDE {
+        @Override
+        public Prefetcher create(int depth) {
+            return new StridePrefetcher(depth);
+        }
+    },
+
+    /**
+     * Read-ahead window that doubles while faults stay sequential, up to depth pages,
+     * and halves when prefetched pages are evicted unused
+     */
+    ADAPTIVE {
+        @Override
+        public Prefetcher create(int depth) {
+            return new AdaptivePrefetcher(depth);
+        }
+    };
+
+    /**
+     * Creates the prefetcher of one simulation, or null for NONE
+     */
+    public abstract Prefetcher create(int depth);
+
+    @Override
+    public String toString() {
+        return name().toLowerCase();
+    }
+}
@@ -0,0 +1,42 @@
+package memory.prefetch;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Chooses the pages loaded ahead of time when a page faults
+ */
+public interface Prefetcher {
+    /**
+     * Writes the pages to prefetch after a fault into candidates
+     *
+     * @param faultPage Page that faulted
+     * @param candidates Output buffer, at least as long as the prefetch depth
+     * @return Number of candidates written; pages out of range or resident are skipped by the caller
+     */
+    int select(int faultPage, int[] candidates);
+
+    /**
+     * Called when a prefetched page is referenced before being evicted
+     */
+    default void onPrefetchHit(int page) {
+    }
+
+    /**
+     * Called when a prefetched page is evicted without having been referenced
+     */
+    default void onWastedPrefetch(int page) {
+    }
+
+    /**
+     * Writes the state the policy learned from past faults, for a checkpoint
+     */
+    default void writeState(DataOutput out) throws IOException {
+    }
+
+    /**
+     * Replaces the learned state with the one written by writeState()
+     */
+    default void readState(DataInput in) throws IOException {
+    }
+}
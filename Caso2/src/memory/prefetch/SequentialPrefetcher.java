@@ -0,0 +1,21 @@
+package memory.prefetch;
+
+/**
+ * Prefetches a fixed number of pages following the faulting one
+ */
+public class SequentialPrefetcher implements Prefetcher {
+    // Instance variables
+    private final int depth;
+
+    public SequentialPrefetcher(int depth) {
+        this.depth = depth;
+    }
+
+    @Override
+    public int select(int faultPage, int[] candidates) {
+        for (int i = 0; i < depth; i++) {
+            candidates[i] = faultPage + i + 1;
+        }
+        return depth;
+    }
+}
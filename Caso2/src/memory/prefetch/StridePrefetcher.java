@@ -0,0 +1,124 @@
+package memory.prefetch;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Stream table in the style of a hardware stride prefetcher. Each stream remembers the
+ * frontier it has reached and its last stride; a fault close to a frontier belongs to that
+ * stream. When the same stride is seen twice in a row the stream is confirmed and the next
+ * depth pages along the stride are prefetched. The Sobel trace walks the input image and
+ * the output image at once, so each matrix region ends up with a stream of its own.
+ */
+public class StridePrefetcher implements Prefetcher {
+    // Constants
+    private static final int STREAM_COUNT = 4;
+    private static final int MATCH_DISTANCE = 16; // Pages between a fault and a frontier of the same stream
+
+    // Instance variables
+    private final int depth;
+    private final int[] frontier = new int[STREAM_COUNT]; // Last page faulted or prefetched by the stream
+    private final int[] stride = new int[STREAM_COUNT];
+    private final long[] lastUse = new long[STREAM_COUNT];
+    private final boolean[] active = new boolean[STREAM_COUNT];
+    private long faults;
+
+    public StridePrefetcher(int depth) {
+        this.depth = depth;
+    }
+
+    @Override
+    public int select(int faultPage, int[] candidates) {
+        faults++;
+        int stream = findStream(faultPage);
+
+        if (stream < 0) {
+            startStream(faultPage);
+            return 0;
+        }
+
+        lastUse[stream] = faults;
+        int distance = faultPage - frontier[stream];
+        if (distance == 0 || distance != stride[stream]) {
+            // New or changed stride: remember it and wait for confirmation
+            stride[stream] = distance;
+            frontier[stream] = faultPage;
+            return 0;
+        }
+
+        for (int i = 0; i < depth; i++) {
+            candidates[i] = faultPage + (i + 1) * distance;
+        }
+        frontier[stream] = faultPage + depth * distance;
+        return depth;
+    }
+
+    /**
+     * Returns the active stream whose frontier is closest to the page, or -1 if none is close enough
+     */
+    private int findStream(int page) {
+        int best = -1;
+        int bestDistance = MATCH_DISTANCE + 1;
+
+        for (int s = 0; s < STREAM_COUNT; s++) {
+            int distance = Math.abs(page - frontier[s]);
+            if (active[s] && distance < bestDistance) {
+                best = s;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Replaces the least recently used stream with a new one starting at the page
+     */
+    private void startStream(int page) {
+        int victim = 0;
+
+        for (int s = 0; s < STREAM_COUNT; s++) {
+            if (!active[s]) {
+                victim = s;
+                break;
+            }
+            if (lastUse[s] < lastUse[victim]) {
+                victim = s;
+            }
+        }
+
+        active[victim] = true;
+        frontier[victim] = page;
+        stride[victim] = 0;
+        lastUse[victim] = faults;
+    }
+
+    /**
+     * Writes the stream table and the fault count
+     */
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeLong(faults);
+
+        for (int s = 0; s < STREAM_COUNT; s++) {
+            out.writeBoolean(active[s]);
+            out.writeInt(frontier[s]);
+            out.writeInt(stride[s]);
+            out.writeLong(lastUse[s]);
+        }
+    }
+
+    /**
+     * Restores the stream table written by writeState()
+     */
+    @Override
+    public void readState(DataInput in) throws IOException {
+        faults = in.readLong();
+
+        for (int s = 0; s < STREAM_COUNT; s++) {
+            active[s] = in.readBoolean();
+            frontier[s] = in.readInt();
+            stride[s] = in.readInt();
+            lastUse[s] = in.readLong();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package memory.threads;
 
 import memory.OS;
+import memory.events.InspectorSweepEvent;
 
 /**
  * Thread responsible for periodically resetting reference bits in the page table
@@ -12,12 +13,15 @@ public class Inspector extends Thread {
 
     // Instance variables
     private final OS os;
+    private final Reader reader; // Inspected until it finishes
+    private volatile long sweeps; // Resets done, read by the monitoring MBean
 
     /**
-     * Creates a new Inspector for the specified operating system
+     * Creates a new Inspector for the specified operating system and its reader
      */
-    public Inspector(OS os) {
+    public Inspector(OS os, Reader reader) {
         this.os = os;
+        this.reader = reader;
     }
 
     /**
@@ -65,7 +69,24 @@ public class Inspector extends Thread {
      * Resets the reference bit for all pages in the page table
      */
     private void resetAllReferenceBits() {
+        InspectorSweepEvent event = new InspectorSweepEvent();
+        event.begin();
+
         os.pageTable.resetReferenceBits();
+        sweeps++; // Only this thread writes it
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.setPageCount(os.pageTable.size());
+            event.commit();
+        }
+    }
+
+    /**
+     * Returns the number of times the reference bits were reset
+     */
+    public long getSweeps() {
+        return sweeps;
     }
 
     /**
@@ -74,6 +95,6 @@ public class Inspector extends Thread {
      * @return true if the Reader is still working, false otherwise
      */
     private boolean checkIfReaderIsWorking() {
-        return Reader.working;
+        return reader.isWorking();
     }
 }
\ No newline at end of file
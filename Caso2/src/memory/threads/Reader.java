@@ -2,19 +2,27 @@ package memory.threads;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
+import memory.Checkpoint;
+import memory.Histogram;
 import memory.NRU;
 import memory.OS;
+import memory.ReferenceTrace;
+import memory.events.PageFaultEvent;
+import results.ScenarioResult;
 
 public class Reader extends Thread {
-    // Constants for actions
-    private static final String READ_ACTION = "R";
-    private static final String WRITE_ACTION = "W";
-
     // Constants for file operations
-    private static final String DATA_FILE_PATH = "output/data.txt";
+    private static final String METRICS_FILE_PATH = "output/metrics.txt";
+    private static final String TIME_SERIES_FILE_FORMAT = "output/timeseries_%d_%d.csv";
+    private static final String CHECKPOINT_FILE_FORMAT = "output/checkpoint_%d_%d.bin";
     private static final String FILE_ERROR_MESSAGE = "Error writing to file: ";
+    private static final Object METRICS_FILE_LOCK = new Object(); // Readers of concurrent scenarios append to one file
+    private static final String CHECKPOINT_ERROR_MESSAGE = "Error reading checkpoint: ";
+    private static final String RESUME_MESSAGE = "Resuming page size %d, %d frames from reference %d";
 
     // Constants for output formatting
     private static final String REPORT_SEPARATOR = "\n===============================";
@@ -23,9 +31,19 @@ public class Reader extends Thread {
     private static final String REFERENCES_MESSAGE = "References: %d";
     private static final String HITS_MESSAGE = "Hits: %d (%%%.2f)";
     private static final String FAULTS_MESSAGE = "Faults: %d (%%%.2f)";
+    private static final String INTERARRIVAL_MESSAGE = "Fault distance: mean %.1f, p50 %d, p99 %d, max %d refs";
+    private static final String EVICTIONS_MESSAGE = "Evictions: %d dirty, %d clean";
+    private static final String PREFETCH_MESSAGE = "Prefetch: %d pages, %d hits, %d wasted, %d unused at end";
+    private static final String PAGING_MESSAGE = "Paging I/O: %d disk reads, %d swap reads, %d swap writes";
+    private static final String COMPRESSED_MESSAGE = "Compressed tier: %d loads, %d stores, %d written back";
+    private static final String PAGING_COST_MESSAGE = "Paging cost: %.1f ms disk, %.1f ms swap, %.1f ms compressed";
+
+    // Constants for results
+    private static final String POLICY_NAME = "NRU";
+    private static final String COMPRESSED_POLICY_FORMAT = "+compressed(%dB,%.1fx)";
 
     // Constants for page fault handling
-    private static final String MODIFIED_PAGE_ERROR = "The modified page is not found in SWAP memory.";
+    private static final String MODIFIED_PAGE_ERROR = "The modified page is not found in SWAP memory or the compressed tier.";
     private static final String UNMODIFIED_PAGE_ERROR = "The unmodified page is not found on the hard drive.";
 
     // Constants for performance simulation
@@ -35,74 +53,305 @@ public class Reader extends Thread {
 
     // Instance variables
     private OS os;
-    private ArrayList<String[]> references;
+    private ReferenceTrace references;
     private NRU nru;
-    public static boolean working; // tells the inspector that the reader has finished reading references
+    private volatile boolean working; // tells the inspector that the reader has finished reading references
     private int hits;
     private int faults;
-
-    public Reader(OS os, ArrayList<String[]> references, NRU nru) {
+    private long position; // Index in the trace of the reference being processed
+    private long elapsedNanos;
+    private long nextCheckpoint; // Processed references at which the next checkpoint is saved
+    private int[] prefetchCandidates;
+    private volatile long reportedReferences; // Progress published for monitoring at every pause
+    private volatile long reportedHits;
+    private volatile long reportedFaults;
+    private volatile int reportedDirtyPages;
+    private volatile int reportedResidentPages; // Only with several page sizes; RAM counts them otherwise
+    private boolean monitored; // Whether an MBean reads the page counts; set before the thread starts
+    private boolean batched; // Hits set their bits once per block
+    private int[] pendingPages; // Pages hit in the current block whose bits are not in the page table yet
+    private int pendingCount;
+    private boolean[] pending;
+    private boolean[] pendingWrite;
+
+    public Reader(OS os, ReferenceTrace references, NRU nru) {
         initializeFields(os, references, nru);
     }
 
-    private void initializeFields(OS os, ArrayList<String[]> references, NRU nru) {
+    private void initializeFields(OS os, ReferenceTrace references, NRU nru) {
         this.os = os;
         this.references = references;
         this.nru = nru;
         this.hits = 0;
         this.faults = 0;
+        this.prefetchCandidates = new int[Math.max(0, os.options.getPrefetchDepth())];
+
+        this.batched = os.options.getBatchRuns() > 0;
+
+        if (batched) {
+            pendingPages = new int[os.pageCount];
+            pending = new boolean[os.pageCount];
+            pendingWrite = new boolean[os.pageCount];
+        }
         working = true;
     }
 
     @Override
     public void run() {
-        processAllReferences();
+        long startTime = System.nanoTime();
+        try {
+            processAllReferences();
+        } finally {
+            working = false; // Stops the inspector even if the run is aborted
+        }
+        elapsedNanos = System.nanoTime() - startTime;
+
         finishExecution();
-        displayReport();
-        saveResultsToFile();
+        if (os.options.isReportPrinted()) {
+            displayReport();
+        }
+        saveInfo();
+    }
+
+    public void saveInfo() {
+        publishResult();
+        saveMetricsToFile();
+        saveTimeSeriesToFile();
     }
 
     private void processAllReferences() {
-        int referenceCount = 0;
+        Checkpoint resumed = resumeFromCheckpoint();
+        int firstRun = resumed == null ? 0 : resumed.getNextRun();
+        long referenceCount = resumed == null ? 0 : resumed.getProcessed();
+        nextCheckpoint = referenceCount + os.options.getCheckpointInterval();
+        int blockRuns = Math.max(1, os.options.getBatchRuns());
+
+        for (int blockStart = firstRun; blockStart < references.size(); blockStart += blockRuns) {
+            int blockEnd = Math.min(references.size(), blockStart + blockRuns);
+            referenceCount = processBlock(blockStart, blockEnd, referenceCount);
+            checkForCheckpoint(blockEnd, referenceCount);
+        }
 
-        for (String[] reference : references) {
-            processReference(reference);
+        deleteCheckpoint();
+    }
+
+    /**
+     * Replays the runs [start, end) and sets the bits they left pending
+     *
+     * @param processed References processed before the block
+     * @return References processed after the block
+     */
+    private long processBlock(int start, int end, long processed) {
+        for (int run = start; run < end; run++) {
+            int count = references.count(run);
+            position = processed;
+            closeFinishedWindow();
+
+            if (batched) {
+                processRunBatched(references.page(run), references.isWrite(run), count);
+            } else {
+                processRun(references.page(run), references.isWrite(run), count);
+            }
+
+            checkForInspection(processed, processed + count, references.page(run));
+            checkForPeriodicSleep(processed, processed + count);
+            processed += count;
+        }
 
-            referenceCount++;
-            checkForPeriodicSleep(referenceCount);
+        if (batched) {
+            publishPendingBits();
         }
+        return processed;
     }
 
-    private void processReference(String[] reference) {
-        Integer page = extractPageNumber(reference);
-        Integer offset = extractOffset(reference);
-        String action = extractAction(reference);
+    private boolean checkpointsEnabled() {
+        return os.options.getCheckpointInterval() > 0;
+    }
 
-        handlePageAccess(page, action);
+    private Path checkpointPath() {
+        return Paths.get(String.format(CHECKPOINT_FILE_FORMAT, os.pageSize, os.frameCount));
     }
 
-    private Integer extractPageNumber(String[] reference) {
-        return Integer.parseInt(reference[1]);
+    /**
+     * Restores the state saved by an interrupted run of this scenario, if there is one. A
+     * checkpoint that cannot be read leaves the OS untouched, so the run starts over; one
+     * that fails after changing the OS aborts the run with an IllegalStateException.
+     *
+     * @return The progress to resume from, or null to start from the first reference
+     */
+    private Checkpoint resumeFromCheckpoint() {
+        if (!checkpointsEnabled()) {
+            return null;
+        }
+
+        try {
+            Checkpoint checkpoint = Checkpoint.load(os, references, checkpointPath());
+            if (checkpoint != null) {
+                hits = checkpoint.getHits();
+                faults = checkpoint.getFaults();
+                System.out.println(String.format(RESUME_MESSAGE, os.pageSize, os.frameCount,
+                        checkpoint.getProcessed()));
+            }
+            return checkpoint;
+        } catch (IOException e) {
+            System.err.println(CHECKPOINT_ERROR_MESSAGE + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
     }
 
-    private Integer extractOffset(String[] reference) {
-        return Integer.parseInt(reference[2]);
+    /**
+     * Saves a checkpoint once every checkpoint interval, between runs
+     */
+    private void checkForCheckpoint(int nextRun, long processed) {
+        if (!checkpointsEnabled() || processed < nextCheckpoint || nextRun == references.size()) {
+            return;
+        }
+
+        try {
+            new Checkpoint(nextRun, processed, hits, faults).save(os, references, checkpointPath());
+        } catch (IOException e) {
+            handleFileWriteError(e);
+        }
+        nextCheckpoint = processed + os.options.getCheckpointInterval();
     }
 
-    private String extractAction(String[] reference) {
-        return reference[3];
+    /**
+     * Removes the checkpoint of a scenario that ran to the end
+     */
+    private void deleteCheckpoint() {
+        if (!checkpointsEnabled()) {
+            return;
+        }
+
+        try {
+            Files.deleteIfExists(checkpointPath());
+        } catch (IOException e) {
+            handleFileWriteError(e);
+        }
     }
 
-    private void handlePageAccess(Integer page, String action) {
+    /**
+     * Closes the time series window that ends where the current run starts, before the run
+     * faults or evicts, so the window's evictions and dirty pages exclude the next window
+     */
+    private void closeFinishedWindow() {
+        if (os.timeSeries == null || !os.timeSeries.isWindowFinished(position)) {
+            return;
+        }
+
+        if (batched) {
+            publishPendingBits();
+        }
+        os.timeSeries.closeWindow(os);
+    }
+
+    /**
+     * Replays a run of references to the same page in O(1). Only the first reference
+     * can fault: nothing is evicted while the run lasts, so the rest are hits. The R bit
+     * is set once, so a reset by the Inspector thread during the run is not undone as the
+     * expanded references would; checkForInspection() covers the deterministic period.
+     */
+    private void processRun(int page, boolean write, int count) {
+        int faultsBefore = faults;
+        handlePageAccess(page, write);
+        hits += count - 1;
+
+        if (os.timeSeries != null) {
+            os.timeSeries.recordRun(position, page, count, faults != faultsBefore, os);
+        }
+    }
+
+    /**
+     * Replays a run inside a block. A hit on a resident page takes no lock: its R and M bits
+     * are recorded in the Reader and set in the page table at the end of the block, or
+     * earlier when something reads them: a fault, which may run NRU, the close of a time
+     * series window, a deterministic Inspector reset or a sleep. To the Inspector thread a
+     * hit happens when its block is published; it can still reset the bits in mid-block,
+     * so only a deterministic Inspector period gives the per-reference results.
+     */
+    private void processRunBatched(int page, boolean write, int count) {
+        if (!os.pageTable.isLoaded(page)) {
+            publishPendingBits();
+            processRun(page, write, count);
+            return;
+        }
+
+        handlePageHit(page);
+        hits += count - 1;
+        markPending(page, write);
+
+        if (os.timeSeries != null) {
+            if (os.timeSeries.closesWindow(position, count)) {
+                publishPendingBits();
+            }
+            os.timeSeries.recordRun(position, page, count, false, os);
+        }
+    }
+
+    /**
+     * Records that a page was referenced, and written if write, in the current block
+     */
+    private void markPending(int page, boolean write) {
+        if (!pending[page]) {
+            pending[page] = true;
+            pendingPages[pendingCount++] = page;
+        }
+        pendingWrite[page] |= write;
+    }
+
+    /**
+     * Sets the bits recorded since the last call in the page table, under a single lock
+     */
+    private void publishPendingBits() {
+        if (pendingCount == 0) {
+            return;
+        }
+
+        os.pageTable.setReferencedBits(pendingPages, pendingCount, pendingWrite);
+        for (int i = 0; i < pendingCount; i++) {
+            pending[pendingPages[i]] = false;
+            pendingWrite[pendingPages[i]] = false;
+        }
+        pendingCount = 0;
+    }
+
+    private void handlePageAccess(Integer page, boolean write) {
         boolean pageLoaded = checkIfPageLoaded(page);
 
         if (!pageLoaded) {
             handlePageFault(page);
         } else {
-            handlePageHit();
+            handlePageHit(page);
         }
 
-        updatePageBits(page, action);
+        updatePageBits(page, write);
+
+        // Read ahead once the demand page is referenced, so it is not chosen as a victim
+        if (!pageLoaded && os.prefetcher != null) {
+            prefetchAfterFault(page);
+        }
+    }
+
+    /**
+     * Loads the pages chosen by the prefetcher that are in range and not resident.
+     * Their R bit stays clear, like pages on an inactive list: NRU evicts an unused
+     * prefetched page before any page the program has referenced recently.
+     */
+    private void prefetchAfterFault(int page) {
+        int count = os.prefetcher.select(page, prefetchCandidates);
+
+        for (int i = 0; i < count; i++) {
+            int candidate = prefetchCandidates[i];
+            if (candidate < 0 || candidate >= os.pageCount || checkIfPageLoaded(candidate)) {
+                continue;
+            }
+
+            readPage(candidate, verifyPageLocation(candidate));
+            loadPageIntoMemory(candidate);
+            os.pageTable.setPrefetchedBit(candidate, true);
+            os.metrics.recordPrefetch();
+        }
     }
 
     private boolean checkIfPageLoaded(Integer page) {
@@ -111,14 +360,37 @@ public class Reader extends Thread {
 
     private void handlePageFault(Integer page) {
         faults++;
+        os.metrics.recordFault(page, position);
 
-        verifyPageLocation(page);
+        boolean fromSwap = verifyPageLocation(page);
+        PageFaultEvent.emit(page, position, fromSwap);
+        readPage(page, fromSwap);
         loadPageIntoMemory(page);
     }
 
-    private void verifyPageLocation(Integer page) {
+    /**
+     * Counts the read of a page from its backing store. A dirty page is read from the
+     * compressed tier when it is there, which takes it out of the tier, and from SWAP otherwise.
+     */
+    private void readPage(int page, boolean modified) {
+        if (!modified) {
+            os.metrics.recordDiskRead();
+        } else if (os.compressedSwap != null && os.compressedSwap.load(page)) {
+            os.metrics.recordCompressedLoad();
+        } else {
+            os.metrics.recordSwapRead();
+        }
+    }
+
+    /**
+     * Checks that the page is where its modified bit says it is
+     *
+     * @return Whether the page is loaded from SWAP or the compressed tier
+     */
+    private boolean verifyPageLocation(Integer page) {
         boolean modified = os.pageTable.getModifiedBit(page);
-        boolean inSwap = os.swap.pageInSWAP(page);
+        boolean inSwap = os.swap.pageInSWAP(page)
+                || (os.compressedSwap != null && os.compressedSwap.contains(page));
         boolean inHardDrive = os.hardDrive.pageInHardDrive(page);
 
         if (modified) {
@@ -126,6 +398,7 @@ public class Reader extends Thread {
         } else {
             verifyUnmodifiedPageLocation(inHardDrive);
         }
+        return modified;
     }
 
     private void verifyModifiedPageLocation(boolean inSwap) {
@@ -141,6 +414,11 @@ public class Reader extends Thread {
     }
 
     private void loadPageIntoMemory(Integer page) {
+        if (os.pageUnits != null) {
+            loadSizedPageIntoMemory(page);
+            return;
+        }
+
         Integer availableFrame = findAvailableFrame();
 
         if (availableFrame == null) {
@@ -150,6 +428,22 @@ public class Reader extends Thread {
         }
     }
 
+    /**
+     * Loads a page that takes os.pageUnits[page] base frames. NRU evicts pages until an
+     * aligned block of that many frames is free, which for a large page may take several
+     * evictions when free frames are scattered.
+     */
+    private void loadSizedPageIntoMemory(int page) {
+        int units = os.pageUnits[page];
+        Integer block = os.ram.allocate(units);
+
+        while (block == null) {
+            nru.execute(page);
+            block = os.ram.allocate(units);
+        }
+        assignFrameToPage(page, block);
+    }
+
     private Integer findAvailableFrame() {
         return os.ram.findAvailableFrame();
     }
@@ -163,15 +457,21 @@ public class Reader extends Thread {
         os.pageTable.setFrame(page, frame);
     }
 
-    private void handlePageHit() {
+    private void handlePageHit(int page) {
         hits++;
+
+        if (os.prefetcher != null && os.pageTable.getPrefetchedBit(page)) {
+            os.pageTable.setPrefetchedBit(page, false);
+            os.metrics.recordPrefetchHit();
+            os.prefetcher.onPrefetchHit(page);
+        }
     }
 
-    private void updatePageBits(Integer page, String action) {
-        if (READ_ACTION.equals(action)) {
-            updateReadBits(page);
-        } else if (WRITE_ACTION.equals(action)) {
+    private void updatePageBits(Integer page, boolean write) {
+        if (write) {
             updateWriteBits(page);
+        } else {
+            updateReadBits(page);
         }
     }
 
@@ -184,18 +484,84 @@ public class Reader extends Thread {
         os.pageTable.setModifiedBit(page, true);
     }
 
-    private void checkForPeriodicSleep(int referenceCount) {
-        if (referenceCount % REFERENCES_PER_SLEEP == 0) {
+    /**
+     * With a deterministic Inspector period, resets the R bits when a multiple of the period
+     * is reached in (processed, newCount]. A reset inside a run is followed by more
+     * references to its page, which set its R bit again. The hit count is sampled at every
+     * reset for the eviction log, if there is one.
+     */
+    private void checkForInspection(long processed, long newCount, int page) {
+        long period = os.options.getInspectorPeriod();
+        if (period == 0 || processed / period == newCount / period) {
+            return;
+        }
+
+        if (batched) {
+            publishPendingBits();
+        }
+        os.pageTable.resetReferenceBits();
+
+        if (newCount % period != 0) {
+            os.pageTable.setReferenceBit(page, true);
+        }
+        if (os.evictionLog != null) {
+            os.evictionLog.recordHits(newCount, hits);
+        }
+    }
+
+    /**
+     * Sleeps once for every multiple of REFERENCES_PER_SLEEP reached in (processed, newCount].
+     * The pending bits are set first: the timed Inspector resets them while the Reader sleeps.
+     */
+    private void checkForPeriodicSleep(long processed, long newCount) {
+        if (processed / REFERENCES_PER_SLEEP == newCount / REFERENCES_PER_SLEEP) {
+            return;
+        }
+
+        if (batched) {
+            publishPendingBits();
+        }
+        reportProgress(newCount);
+        for (long n = processed / REFERENCES_PER_SLEEP; n < newCount / REFERENCES_PER_SLEEP; n++) {
             sleepForInterval();
         }
     }
 
+    /**
+     * Publishes the counters read by the monitoring MBean. Called at every pause only, so
+     * the loop itself never writes a volatile field. The page counts walk the page table,
+     * so they are only taken while an MBean is registered to read them.
+     */
+    private void reportProgress(long processed) {
+        reportedHits = hits;
+        reportedFaults = faults;
+        reportedReferences = processed;
+
+        if (!monitored) {
+            return;
+        }
+        reportedDirtyPages = os.pageTable.countDirtyResidentPages();
+
+        if (os.pageUnits != null) {
+            reportedResidentPages = os.pageTable.countResidentPages();
+        }
+    }
+
     private void sleepForInterval() {
         sleep(SLEEP_MILLISECONDS, SLEEP_NANOSECONDS);
     }
 
     private void finishExecution() {
         working = false;
+        reportProgress(references.referenceCount());
+
+        if (os.evictionLog != null) {
+            os.evictionLog.recordHits(references.referenceCount(), hits);
+        }
+
+        if (os.timeSeries != null) {
+            os.timeSeries.finish(os);
+        }
     }
 
     private void displayReport() {
@@ -212,37 +578,111 @@ public class Reader extends Thread {
     private void printSimulationParameters() {
         System.out.println(String.format(PAGE_SIZE_MESSAGE, os.pageSize));
         System.out.println(String.format(FRAMES_MESSAGE, os.frameCount));
-        System.out.println(String.format(REFERENCES_MESSAGE, references.size()));
+        System.out.println(String.format(REFERENCES_MESSAGE, references.referenceCount()));
     }
 
     private void printPerformanceMetrics() {
-        double totalReferences = references.size();
+        double totalReferences = references.referenceCount();
         double hitPercentage = (double) hits * 100 / totalReferences;
         double faultPercentage = (double) faults * 100 / totalReferences;
 
         System.out.printf(HITS_MESSAGE + "%n", hits, hitPercentage);
-        System.out.printf(FAULTS_MESSAGE, faults, faultPercentage);
+        System.out.printf(FAULTS_MESSAGE + "%n", faults, faultPercentage);
+        printDistributionMetrics();
+    }
+
+    private void printDistributionMetrics() {
+        Histogram interArrival = os.metrics.getFaultInterArrival();
+
+        System.out.printf(INTERARRIVAL_MESSAGE + "%n", interArrival.getMean(), interArrival.percentile(50),
+                interArrival.percentile(99), interArrival.getMax());
+        System.out.printf(EVICTIONS_MESSAGE, os.metrics.getDirtyEvictions(), os.metrics.getCleanEvictions());
+        printPrefetchMetrics();
+        printPagingMetrics();
+    }
+
+    private void printPrefetchMetrics() {
+        if (os.prefetcher == null) {
+            return;
+        }
+
+        long unused = os.metrics.getPrefetches() - os.metrics.getPrefetchHits() - os.metrics.getWastedPrefetches();
+        System.out.printf("%n" + PREFETCH_MESSAGE, os.metrics.getPrefetches(), os.metrics.getPrefetchHits(),
+                os.metrics.getWastedPrefetches(), unused);
+    }
+
+    private void printPagingMetrics() {
+        System.out.printf("%n" + PAGING_MESSAGE, os.metrics.getDiskReads(), os.metrics.getSwapReads(),
+                os.metrics.getSwapWrites());
+
+        if (os.compressedSwap != null) {
+            System.out.printf("%n" + COMPRESSED_MESSAGE, os.metrics.getCompressedLoads(),
+                    os.metrics.getCompressedStores(), os.metrics.getWritebacks());
+        }
+        System.out.printf("%n" + PAGING_COST_MESSAGE, os.metrics.getDiskMicros() / 1000,
+                os.metrics.getSwapMicros() / 1000, os.metrics.getCompressedMicros() / 1000);
     }
 
     private void printReportFooter() {
         System.out.println(REPORT_SEPARATOR);
     }
 
-    private void saveResultsToFile() {
-        try (BufferedWriter writer = createFileWriter()) {
-            writeResultsToFile(writer);
-        } catch (IOException e) {
-            handleFileWriteError(e);
+    /**
+     * Hands the result of the scenario to the result sink of the options, if any
+     */
+    private void publishResult() {
+        if (os.options.getResultSink() == null) {
+            return;
         }
+
+        os.options.getResultSink().add(new ScenarioResult(os.options.getScenario(),
+                os.options.getTraceDescription(), policyName(), os.pageSize, os.frameCount, os.pageCount,
+                references.referenceCount(), hits, faults, os.metrics.getDirtyEvictions(),
+                os.metrics.getCleanEvictions(), elapsedNanos));
     }
 
-    private BufferedWriter createFileWriter() throws IOException {
-        return new BufferedWriter(new FileWriter(DATA_FILE_PATH, true));
+    /**
+     * Returns the replacement policy, followed by the prefetch policy and depth when prefetching
+     * and by the size and ratio of the compressed tier when there is one
+     */
+    private String policyName() {
+        String name = POLICY_NAME;
+
+        if (os.prefetcher != null) {
+            name += "+" + os.options.getPrefetchPolicy() + "(" + os.options.getPrefetchDepth() + ")";
+        }
+        if (os.compressedSwap != null) {
+            name += String.format(COMPRESSED_POLICY_FORMAT, os.options.getCompressedSwapBytes(),
+                    os.options.getCompressionRatio());
+        }
+        return name;
     }
 
-    private void writeResultsToFile(BufferedWriter writer) throws IOException {
-        writer.write(os.pageSize + " " + os.frameCount + " " + hits + " " + faults);
-        writer.newLine();
+    private void saveMetricsToFile() {
+        if (!os.options.isMetricsSaved()) {
+            return;
+        }
+
+        synchronized (METRICS_FILE_LOCK) {
+            try (BufferedWriter writer = new BufferedWriter(new FileWriter(METRICS_FILE_PATH, true))) {
+                os.metrics.write(writer, os.pageSize, os.frameCount);
+            } catch (IOException e) {
+                handleFileWriteError(e);
+            }
+        }
+    }
+
+    private void saveTimeSeriesToFile() {
+        if (os.timeSeries == null) {
+            return;
+        }
+
+        String path = String.format(TIME_SERIES_FILE_FORMAT, os.pageSize, os.frameCount);
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(path, false))) {
+            os.timeSeries.write(writer);
+        } catch (IOException e) {
+            handleFileWriteError(e);
+        }
     }
 
     private void handleFileWriteError(IOException e) {
@@ -261,7 +701,45 @@ public class Reader extends Thread {
         e.printStackTrace();
     }
 
-    public void saveInfo() {
-        saveResultsToFile();
+    /**
+     * Checks if the reader is still processing references
+     */
+    public boolean isWorking() {
+        return working;
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public int getFaults() {
+        return faults;
+    }
+
+    public long getReportedReferences() {
+        return reportedReferences;
+    }
+
+    public long getReportedHits() {
+        return reportedHits;
+    }
+
+    public long getReportedFaults() {
+        return reportedFaults;
+    }
+
+    /**
+     * Makes the Reader publish the page counts at its pauses; must be called before it starts
+     */
+    public void setMonitored(boolean monitored) {
+        this.monitored = monitored;
+    }
+
+    public int getReportedDirtyPages() {
+        return reportedDirtyPages;
+    }
+
+    public int getReportedResidentPages() {
+        return reportedResidentPages;
     }
 }
\ No newline at end of file
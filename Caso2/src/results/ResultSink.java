@@ -0,0 +1,182 @@
+package results;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects scenario results in memory from any thread and writes them once at the end,
+ * atomically, as CSV with a header and as JSON lines. A CSV written by another process
+ * can be read back to merge its results.
+ */
+public class ResultSink {
+    // Constants
+    private static final String CSV_SEPARATOR = ",";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final char QUOTE = '"';
+
+    // Instance variables
+    private final ConcurrentLinkedQueue<ScenarioResult> results = new ConcurrentLinkedQueue<>();
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    /**
+     * Adds a result; safe to call from concurrent simulations
+     */
+    public void add(ScenarioResult result) {
+        result.setSequence(nextSequence.getAndIncrement());
+        results.add(result);
+    }
+
+    /**
+     * Returns a snapshot of the collected results in the order they were added
+     */
+    public List<ScenarioResult> getResults() {
+        List<ScenarioResult> snapshot = new ArrayList<>(results);
+        snapshot.sort(Comparator.comparingLong(ScenarioResult::getSequence));
+        return snapshot;
+    }
+
+    /**
+     * Writes every collected result as CSV; readers of the file never see a partial table
+     */
+    public void writeCsv(Path path) throws IOException {
+        List<ScenarioResult> snapshot = getResults();
+
+        writeAtomically(path, writer -> {
+            writer.write(String.join(CSV_SEPARATOR, ScenarioResult.COLUMNS));
+            writer.newLine();
+            for (ScenarioResult result : snapshot) {
+                writer.write(toCsv(result));
+                writer.newLine();
+            }
+        });
+    }
+
+    /**
+     * Writes every collected result as one JSON object per line
+     */
+    public void writeJsonLines(Path path) throws IOException {
+        List<ScenarioResult> snapshot = getResults();
+
+        writeAtomically(path, writer -> {
+            for (ScenarioResult result : snapshot) {
+                writer.write(toJson(result));
+                writer.newLine();
+            }
+        });
+    }
+
+    /**
+     * Reads the results of a CSV written by writeCsv(), in file order
+     */
+    public static List<ScenarioResult> readCsv(Path path) throws IOException {
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        List<ScenarioResult> read = new ArrayList<>();
+
+        if (lines.isEmpty() || !lines.get(0).equals(String.join(CSV_SEPARATOR, ScenarioResult.COLUMNS))) {
+            throw new IOException(path + " is not a results CSV");
+        }
+        for (String line : lines.subList(1, lines.size())) {
+            read.add(ScenarioResult.fromValues(splitCsv(line)));
+        }
+        return read;
+    }
+
+    /**
+     * Splits a line written by toCsv() into its fields, unquoting the ones quoted by quoteCsv()
+     */
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+
+            if (quoted && c == QUOTE && i + 1 < line.length() && line.charAt(i + 1) == QUOTE) {
+                field.append(QUOTE);
+                i++;
+            } else if (c == QUOTE) {
+                quoted = !quoted;
+            } else if (!quoted && line.startsWith(CSV_SEPARATOR, i)) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private String toCsv(ScenarioResult result) {
+        StringBuilder line = new StringBuilder();
+        Object[] values = result.values();
+
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append(CSV_SEPARATOR);
+            }
+            line.append(values[i] instanceof String ? quoteCsv((String) values[i]) : values[i]);
+        }
+        return line.toString();
+    }
+
+    private String quoteCsv(String value) {
+        if (value.contains(CSV_SEPARATOR) || value.contains("\"")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    private String toJson(ScenarioResult result) {
+        StringBuilder line = new StringBuilder("{");
+        Object[] values = result.values();
+
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            line.append('"').append(ScenarioResult.COLUMNS[i]).append("\":");
+            if (values[i] instanceof String) {
+                line.append('"').append(((String) values[i]).replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+            } else {
+                line.append(values[i]);
+            }
+        }
+        return line.append('}').toString();
+    }
+
+    /**
+     * Writes to a unique temporary file next to the target and renames it over the target
+     */
+    private void writeAtomically(Path path, Content content) throws IOException {
+        Path absolute = path.toAbsolutePath();
+        Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), TEMP_SUFFIX);
+
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            content.write(writer);
+        }
+
+        try {
+            Files.move(temp, absolute, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Body of a file written by writeAtomically()
+     */
+    private interface Content {
+        void write(BufferedWriter writer) throws IOException;
+    }
+}
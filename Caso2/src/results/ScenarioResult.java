@@ -0,0 +1,116 @@
+package results;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Outcome of one simulated scenario, with the parameters that identify it
+ */
+public class ScenarioResult {
+    // Column names, in output order
+    static final String[] COLUMNS = { "sequence", "scenario", "trace", "policy", "page_size", "frames_assigned",
+            "pages", "references", "number_hits", "number_faults", "dirty_evictions", "clean_evictions",
+            "elapsed_ms", "references_per_second" };
+
+    // Identity
+    private final String scenario;
+    private final String trace;
+    private final String policy;
+    private final int pageSize;
+    private final int frameCount;
+    private final int pageCount;
+
+    // Outcome
+    private final long references;
+    private final long hits;
+    private final long faults;
+    private final long dirtyEvictions;
+    private final long cleanEvictions;
+    private final long elapsedNanos;
+    private long sequence; // Set by the sink
+
+    /**
+     * Creates a result
+     *
+     * @param scenario Group the scenario belongs to (e.g. "sweep")
+     * @param trace Description of the trace (traversal, layout, format)
+     * @param policy Page replacement policy
+     */
+    public ScenarioResult(String scenario, String trace, String policy, int pageSize, int frameCount,
+                          int pageCount, long references, long hits, long faults, long dirtyEvictions,
+                          long cleanEvictions, long elapsedNanos) {
+        this.scenario = scenario;
+        this.trace = trace;
+        this.policy = policy;
+        this.pageSize = pageSize;
+        this.frameCount = frameCount;
+        this.pageCount = pageCount;
+        this.references = references;
+        this.hits = hits;
+        this.faults = faults;
+        this.dirtyEvictions = dirtyEvictions;
+        this.cleanEvictions = cleanEvictions;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Rebuilds a result from its values in COLUMNS order, as read from a CSV. The elapsed
+     * time is only kept to the millisecond.
+     */
+    static ScenarioResult fromValues(List<String> values) throws IOException {
+        if (values.size() != COLUMNS.length) {
+            throw new IOException("Expected " + COLUMNS.length + " values, found " + values.size());
+        }
+
+        try {
+            return new ScenarioResult(values.get(1), values.get(2), values.get(3), Integer.parseInt(values.get(4)),
+                    Integer.parseInt(values.get(5)), Integer.parseInt(values.get(6)), Long.parseLong(values.get(7)),
+                    Long.parseLong(values.get(8)), Long.parseLong(values.get(9)), Long.parseLong(values.get(10)),
+                    Long.parseLong(values.get(11)), Long.parseLong(values.get(12)) * 1_000_000);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid result values: " + values, e);
+        }
+    }
+
+    void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    public String getScenario() {
+        return scenario;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getFaults() {
+        return faults;
+    }
+
+    /**
+     * Returns the simulation throughput in references per second
+     */
+    public long getReferencesPerSecond() {
+        return elapsedNanos == 0 ? 0 : (long) (references * 1e9 / elapsedNanos);
+    }
+
+    /**
+     * Returns the values in COLUMNS order; text values are returned as strings
+     */
+    Object[] values() {
+        return new Object[] { sequence, scenario, trace, policy, pageSize, frameCount, pageCount, references, hits,
+                faults, dirtyEvictions, cleanEvictions, elapsedNanos / 1_000_000, getReferencesPerSecond() };
+    }
+}
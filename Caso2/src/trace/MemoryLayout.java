@@ -0,0 +1,109 @@
+package trace;
+
+/**
+ * Describes how the input image, the two Sobel filters and the output image are
+ * placed in the virtual address space of the simulated process.
+ * The default (PACKED) layout is the one of the original statement: input image,
+ * SOBEL_X, SOBEL_Y and output image back to back, pixels stored as interleaved RGB.
+ */
+public class MemoryLayout {
+    // Constants
+    private static final int COMPONENTS = 3; // RGB components
+
+    public static final MemoryLayout PACKED = new MemoryLayout("packed", false, false, false, 0);
+
+    // Layout options
+    private final String name;
+    private final boolean pageAligned;
+    private final boolean filtersFirst;
+    private final boolean planar;
+    private final int gapBytes;
+
+    /**
+     * Creates a layout
+     *
+     * @param name Label used in reports
+     * @param pageAligned Whether every matrix starts on a page boundary
+     * @param filtersFirst Whether SOBEL_X and SOBEL_Y are placed before the images
+     * @param planar Whether pixels are stored as separate R, G and B planes instead of interleaved
+     * @param gapBytes Padding inserted right before the output image
+     */
+    public MemoryLayout(String name, boolean pageAligned, boolean filtersFirst, boolean planar, int gapBytes) {
+        this.name = name;
+        this.pageAligned = pageAligned;
+        this.filtersFirst = filtersFirst;
+        this.planar = planar;
+        this.gapBytes = gapBytes;
+    }
+
+    /**
+     * Places the four matrices for an image of the given size
+     *
+     * @param imageBytes Size of one image matrix in bytes
+     * @param filterBytes Size of one filter matrix in bytes
+     * @param pageSize Page size used for alignment
+     */
+    public Placement place(int imageBytes, int filterBytes, int pageSize) {
+        Placement placement = new Placement();
+        int next = 0;
+
+        if (filtersFirst) {
+            placement.sobelX = next = align(next, pageSize);
+            placement.sobelY = next = align(next + filterBytes, pageSize);
+            placement.imageIn = next = align(next + filterBytes, pageSize);
+            next += imageBytes;
+        } else {
+            placement.imageIn = next;
+            placement.sobelX = next = align(next + imageBytes, pageSize);
+            placement.sobelY = next = align(next + filterBytes, pageSize);
+            next += filterBytes;
+        }
+
+        placement.imageOut = next = align(next + gapBytes, pageSize);
+        placement.totalBytes = next + imageBytes;
+        return placement;
+    }
+
+    /**
+     * Returns the offset of a pixel component from the start of its image matrix
+     */
+    public int pixelOffset(int row, int col, int component, int height, int width) {
+        int pixel = row * width + col;
+
+        if (planar) {
+            return component * height * width + pixel;
+        }
+        return COMPONENTS * pixel + component;
+    }
+
+    private int align(int address, int pageSize) {
+        if (!pageAligned) {
+            return address;
+        }
+        return (address + pageSize - 1) / pageSize * pageSize;
+    }
+
+    /**
+     * Returns every option of the layout, so two layouts with the same label can be told apart
+     */
+    public String describeOptions() {
+        return name + ",pageAligned=" + pageAligned + ",filtersFirst=" + filtersFirst + ",planar=" + planar
+                + ",gapBytes=" + gapBytes;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * Start address of each matrix and total bytes spanned by the layout
+     */
+    public static class Placement {
+        public int imageIn;
+        public int sobelX;
+        public int sobelY;
+        public int imageOut;
+        public int totalBytes;
+    }
+}
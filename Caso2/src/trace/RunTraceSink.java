@@ -0,0 +1,58 @@
+package trace;
+import memory.ReferenceTrace;
+
+/**
+ * Collects references straight into a ReferenceTrace, merging consecutive references
+ * to the same page into runs. No text is produced, so it is the fast path to feed
+ * the simulator with the exact references of a kernel.
+ */
+public class RunTraceSink implements TraceSink {
+    // Constants
+    private static final int NO_PAGE = -1;
+
+    // Instance variables
+    private final int pageSize;
+    private final ReferenceTrace trace = new ReferenceTrace();
+    private int runPage = NO_PAGE;
+    private boolean runWrite;
+    private int runCount;
+
+    /**
+     * Creates a sink that maps addresses to pages of the given size
+     */
+    public RunTraceSink(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public void reference(String name, int row, int col, int component, int address, boolean write) {
+        int page = address / pageSize;
+
+        if (page == runPage) {
+            runWrite |= write;
+            runCount++;
+            return;
+        }
+
+        flushRun();
+        runPage = page;
+        runWrite = write;
+        runCount = 1;
+    }
+
+    /**
+     * Closes the pending run and returns the collected trace
+     */
+    public ReferenceTrace finish() {
+        flushRun();
+        runPage = NO_PAGE;
+        return trace;
+    }
+
+    private void flushRun() {
+        if (runCount > 0) {
+            trace.addRun(runPage, runWrite, runCount);
+            runCount = 0;
+        }
+    }
+}
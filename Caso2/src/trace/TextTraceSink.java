@@ -0,0 +1,61 @@
+package trace;
+import java.util.List;
+
+/**
+ * Formats references as the lines of the references file: "name[row][col].c,page,offset,action",
+ * or "name[row][col].c,address,action" for a trace that does not depend on the page size
+ */
+public class TextTraceSink implements TraceSink {
+    // Constants
+    private static final String[] COMPONENT_SUFFIXES = { ".r", ".g", ".b" };
+    private static final char READ_ACTION = 'R';
+    private static final char WRITE_ACTION = 'W';
+
+    // Instance variables
+    private final int pageSize;
+    private final List<String> target;
+    private final boolean addressFormat;
+    private final StringBuilder builder = new StringBuilder();
+
+    /**
+     * Creates a sink that appends the formatted references to the target list
+     */
+    public TextTraceSink(int pageSize, List<String> target) {
+        this(pageSize, target, false);
+    }
+
+    /**
+     * Creates a sink that appends the formatted references to the target list
+     *
+     * @param addressFormat Whether to write the virtual address instead of page and offset
+     */
+    public TextTraceSink(int pageSize, List<String> target, boolean addressFormat) {
+        this.pageSize = pageSize;
+        this.target = target;
+        this.addressFormat = addressFormat;
+    }
+
+    @Override
+    public void reference(String name, int row, int col, int component, int address, boolean write) {
+        target.add(format(name, row, col, component, address, write));
+    }
+
+    /**
+     * Formats a reference without String.format
+     */
+    public String format(String name, int row, int col, int component, int address, boolean write) {
+        builder.setLength(0);
+        builder.append(name).append('[').append(row).append("][").append(col).append(']');
+        if (component != NO_COMPONENT) {
+            builder.append(COMPONENT_SUFFIXES[component]);
+        }
+        if (addressFormat) {
+            builder.append(',').append(address);
+        } else {
+            builder.append(',').append(address / pageSize)
+                    .append(',').append(address % pageSize);
+        }
+        builder.append(',').append(write ? WRITE_ACTION : READ_ACTION);
+        return builder.toString();
+    }
+}
@@ -0,0 +1,166 @@
+package trace;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Content-addressed cache of reference files on local disk.
+ * A trace is stored under the SHA-256 of the image content and of the options it was
+ * generated with, so an unchanged image and configuration always find the same entry.
+ * Restoring an entry refreshes its modification time; when the cache grows past its size
+ * limit the entries used least recently are deleted first.
+ */
+public class TraceCache {
+    // Constants
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final String TRACE_SUFFIX = ".trace";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int HASH_BUFFER_SIZE = 1 << 16;
+    // Bump when the generator changes the references it writes for the same options
+    private static final int GENERATOR_VERSION = 1;
+
+    // Instance variables
+    private final Path directory;
+    private final long maxBytes;
+
+    /**
+     * Creates a cache in the given directory
+     *
+     * @param maxBytes Size the entries are trimmed to after each store
+     */
+    public TraceCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Computes the key of the trace generated from an image with the given options
+     *
+     * @param options Every option that changes the generated references
+     */
+    public static String key(Path image, String options) throws IOException {
+        MessageDigest digest = newDigest();
+
+        try (InputStream in = Files.newInputStream(image)) {
+            byte[] buffer = new byte[HASH_BUFFER_SIZE];
+            for (int read = in.read(buffer); read > 0; read = in.read(buffer)) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        digest.update(("\n" + GENERATOR_VERSION + "\n" + options).getBytes(StandardCharsets.UTF_8));
+
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(HASH_ALGORITHM + " is not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Copies the cached trace of a key to the target file
+     *
+     * @return Whether the key was in the cache
+     */
+    public boolean restore(String key, Path target) throws IOException {
+        Path entry = entryPath(key);
+
+        try {
+            Files.copy(entry, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+
+        Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        return true;
+    }
+
+    /**
+     * Stores a copy of a trace file under a key and trims the cache to its size limit.
+     * The copy is written to a temporary file and renamed, so concurrent runs never see
+     * a partial entry.
+     */
+    public void store(String key, Path source) throws IOException {
+        Files.createDirectories(directory);
+        Path entry = entryPath(key);
+        Path temp = Files.createTempFile(directory, key, TEMP_SUFFIX);
+
+        Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+        try {
+            Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        evictLeastRecentlyUsed(entry);
+    }
+
+    /**
+     * Deletes the entries with the oldest modification time until the cache fits in
+     * maxBytes, never deleting the entry just stored
+     */
+    private void evictLeastRecentlyUsed(Path keep) throws IOException {
+        List<Path> entries = listEntries();
+        long totalBytes = 0;
+        for (Path entry : entries) {
+            totalBytes += Files.size(entry);
+        }
+
+        entries.sort(Comparator.comparing(TraceCache::lastModified));
+        for (Path entry : entries) {
+            if (totalBytes <= maxBytes) {
+                break;
+            }
+            if (!entry.equals(keep)) {
+                totalBytes -= Files.size(entry);
+                Files.deleteIfExists(entry);
+            }
+        }
+    }
+
+    private List<Path> listEntries() throws IOException {
+        List<Path> entries = new ArrayList<>();
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + TRACE_SUFFIX)) {
+            for (Path entry : stream) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    private static FileTime lastModified(Path entry) {
+        try {
+            return Files.getLastModifiedTime(entry);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0); // Deleted meanwhile: evict first
+        }
+    }
+
+    private Path entryPath(String key) {
+        return directory.resolve(key + TRACE_SUFFIX);
+    }
+}
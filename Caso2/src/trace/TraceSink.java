@@ -0,0 +1,21 @@
+package trace;
+
+/**
+ * Receives the memory references made by a traced kernel, in program order
+ */
+public interface TraceSink {
+    // Component value for matrices whose elements have no RGB components
+    int NO_COMPONENT = -1;
+
+    /**
+     * Records one reference
+     *
+     * @param name Name of the referenced matrix
+     * @param row Row of the referenced element
+     * @param col Column of the referenced element
+     * @param component RGB component (0, 1, 2) or NO_COMPONENT
+     * @param address Virtual byte address of the reference
+     * @param write Whether the reference writes memory
+     */
+    void reference(String name, int row, int col, int component, int address, boolean write);
+}
@@ -0,0 +1,40 @@
+package trace;
+import image.FilterMatrix;
+
+/**
+ * 3x3 filter matrix of ints that reports every coefficient read to a trace sink
+ */
+public class TracedFilterMatrix implements FilterMatrix {
+    // Constants
+    private static final int ROW_SIZE = 3; // Each row has 3 integers
+    private static final int BYTES_PER_INT = 4;
+
+    // Instance variables
+    private final String name;
+    private final FilterMatrix values;
+    private final int baseAddress;
+    private final TraceSink sink;
+
+    /**
+     * Creates a traced view of a filter matrix stored row-major from baseAddress
+     */
+    public TracedFilterMatrix(String name, FilterMatrix values, int baseAddress, TraceSink sink) {
+        this.name = name;
+        this.values = values;
+        this.baseAddress = baseAddress;
+        this.sink = sink;
+    }
+
+    @Override
+    public int get(int row, int col) {
+        sink.reference(name, row, col, TraceSink.NO_COMPONENT, address(row, col), false);
+        return values.get(row, col);
+    }
+
+    /**
+     * Returns the virtual address of a coefficient
+     */
+    public int address(int row, int col) {
+        return baseAddress + BYTES_PER_INT * (row * ROW_SIZE + col);
+    }
+}
@@ -0,0 +1,58 @@
+package trace;
+import image.PixelMatrix;
+
+/**
+ * Pixel matrix that reports every component read and write to a trace sink.
+ * Values are kept by the wrapped matrix, so a kernel produces its normal output.
+ */
+public class TracedPixelMatrix implements PixelMatrix {
+    // Instance variables
+    private final String name;
+    private final PixelMatrix values;
+    private final int baseAddress;
+    private final MemoryLayout layout;
+    private final TraceSink sink;
+
+    /**
+     * Creates a traced view of a pixel matrix
+     *
+     * @param name Name used in the references
+     * @param values Matrix holding the actual pixel values
+     * @param baseAddress Virtual address where the matrix starts
+     * @param layout Layout that decides the offset of each pixel component
+     * @param sink Destination of the references
+     */
+    public TracedPixelMatrix(String name, PixelMatrix values, int baseAddress, MemoryLayout layout, TraceSink sink) {
+        this.name = name;
+        this.values = values;
+        this.baseAddress = baseAddress;
+        this.layout = layout;
+        this.sink = sink;
+    }
+
+    @Override
+    public int height() {
+        return values.height();
+    }
+
+    @Override
+    public int width() {
+        return values.width();
+    }
+
+    @Override
+    public byte get(int row, int col, int component) {
+        sink.reference(name, row, col, component, address(row, col, component), false);
+        return values.get(row, col, component);
+    }
+
+    @Override
+    public void set(int row, int col, int component, byte value) {
+        sink.reference(name, row, col, component, address(row, col, component), true);
+        values.set(row, col, component, value);
+    }
+
+    private int address(int row, int col, int component) {
+        return baseAddress + layout.pixelOffset(row, col, component, values.height(), values.width());
+    }
+}
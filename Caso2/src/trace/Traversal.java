@@ -0,0 +1,136 @@
+package trace;
+
+/**
+ * Order in which the Sobel kernel visits the interior pixels of an image.
+ * Each order produces the same set of pixel visits; only the sequence changes,
+ * which is what drives the locality of the generated reference trace.
+ */
+public enum Traversal {
+    /**
+     * The loop of SobelFilter.applySobel(): for each row, for each column
+     */
+    ROW_MAJOR {
+        @Override
+        void visit(int rows, int cols, int blockSize, Visitor visitor) {
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    visitor.visit(i, j);
+                }
+            }
+        }
+    },
+
+    /**
+     * For each column, for each row
+     */
+    COLUMN_MAJOR {
+        @Override
+        void visit(int rows, int cols, int blockSize, Visitor visitor) {
+            for (int j = 0; j < cols; j++) {
+                for (int i = 0; i < rows; i++) {
+                    visitor.visit(i, j);
+                }
+            }
+        }
+    },
+
+    /**
+     * Square tiles of blockSize x blockSize pixels, row-major inside and across tiles
+     */
+    TILED {
+        @Override
+        void visit(int rows, int cols, int blockSize, Visitor visitor) {
+            for (int ti = 0; ti < rows; ti += blockSize) {
+                for (int tj = 0; tj < cols; tj += blockSize) {
+                    int rowEnd = Math.min(ti + blockSize, rows);
+                    int colEnd = Math.min(tj + blockSize, cols);
+                    for (int i = ti; i < rowEnd; i++) {
+                        for (int j = tj; j < colEnd; j++) {
+                            visitor.visit(i, j);
+                        }
+                    }
+                }
+            }
+        }
+    },
+
+    /**
+     * Morton (Z-order) curve over the interior, skipping codes outside of it
+     */
+    MORTON {
+        @Override
+        void visit(int rows, int cols, int blockSize, Visitor visitor) {
+            int side = Integer.highestOneBit(Math.max(1, Math.max(rows, cols) - 1)) << 1;
+            long codes = (long) side * side;
+
+            for (long code = 0; code < codes; code++) {
+                int i = compactBits(code >>> 1);
+                int j = compactBits(code);
+                if (i < rows && j < cols) {
+                    visitor.visit(i, j);
+                }
+            }
+        }
+    },
+
+    /**
+     * Bands of blockSize rows; each band is walked column by column
+     */
+    ROW_BAND {
+        @Override
+        void visit(int rows, int cols, int blockSize, Visitor visitor) {
+            for (int band = 0; band < rows; band += blockSize) {
+                int bandEnd = Math.min(band + blockSize, rows);
+                for (int j = 0; j < cols; j++) {
+                    for (int i = band; i < bandEnd; i++) {
+                        visitor.visit(i, j);
+                    }
+                }
+            }
+        }
+    };
+
+    /**
+     * Receives the visited positions, relative to the first interior pixel
+     */
+    interface Visitor {
+        void visit(int row, int col);
+    }
+
+    /**
+     * Visits a rows x cols grid in this order
+     *
+     * @param blockSize Tile side for TILED and band height for ROW_BAND, ignored otherwise
+     */
+    abstract void visit(int rows, int cols, int blockSize, Visitor visitor);
+
+    /**
+     * Returns the interior pixels (excluding the one pixel border) of a height x width
+     * image in visiting order, each packed as row * width + col
+     *
+     * @param blockSize Tile side for TILED and band height for ROW_BAND, ignored otherwise
+     */
+    public int[] interiorOrder(int height, int width, int blockSize) {
+        int rows = Math.max(0, height - 2);
+        int cols = Math.max(0, width - 2);
+        int[] order = new int[rows * cols];
+        int[] next = { 0 };
+
+        visit(rows, cols, Math.max(1, blockSize),
+                (row, col) -> order[next[0]++] = (row + 1) * width + (col + 1));
+        return order;
+    }
+
+    /**
+     * Keeps the even bits of a Morton code, packed into the low bits
+     */
+    private static int compactBits(long code) {
+        long x = code & 0x5555555555555555L;
+        x = (x | (x >>> 1)) & 0x3333333333333333L;
+        x = (x | (x >>> 2)) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | (x >>> 4)) & 0x00FF00FF00FF00FFL;
+        x = (x | (x >>> 8)) & 0x0000FFFF0000FFFFL;
+        x = (x | (x >>> 16)) & 0x00000000FFFFFFFFL;
+        return (int) x;
+    }
+}